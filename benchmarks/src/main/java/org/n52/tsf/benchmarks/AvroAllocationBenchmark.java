@@ -0,0 +1,99 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+
+package org.n52.tsf.benchmarks;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.n52.tsf.model.*;
+import org.n52.tsf.serialization.avro.gen.vector.Geometry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Avro deserialization of many small point records, reading a fresh datum per record, reusing the previous datum,
+ * and iterating the complete deserializer. Run with
+ * {@code java -jar benchmarks/target/benchmarks.jar AvroAllocationBenchmark -prof gc}, the scores and the
+ * gc.alloc.rate.norm of the profiler are per record.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+@OperationsPerInvocation(AvroAllocationBenchmark.RECORD_COUNT)
+public class AvroAllocationBenchmark {
+    static final int RECORD_COUNT = 100000;
+
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SerializationHandler avroSerializer = SerializationFactory.createSerializer(output, SerializerType.AVRO_SERIALIZER_VS);
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            avroSerializer.serialize(geometryFactory.createPoint(new Coordinate(7 + i * 1e-6, 51 + i * 1e-6)));
+        }
+        avroSerializer.close();
+        serialized = output.toByteArray();
+    }
+
+    @Benchmark
+    public void readFreshDatums(Blackhole blackhole) throws IOException {
+        DataFileStream<Geometry> dataFileStream = new DataFileStream<>(new ByteArrayInputStream(serialized),
+                new SpecificDatumReader<>(Geometry.class));
+        while (dataFileStream.hasNext()) {
+            blackhole.consume(dataFileStream.next());
+        }
+        dataFileStream.close();
+    }
+
+    @Benchmark
+    public void readReusedDatums(Blackhole blackhole) throws IOException {
+        DataFileStream<Geometry> dataFileStream = new DataFileStream<>(new ByteArrayInputStream(serialized),
+                new SpecificDatumReader<>(Geometry.class));
+        Geometry avroGeometry = null;
+        while (dataFileStream.hasNext()) {
+            avroGeometry = dataFileStream.next(avroGeometry);
+            blackhole.consume(avroGeometry);
+        }
+        dataFileStream.close();
+    }
+
+    @Benchmark
+    public void readGeometries(Blackhole blackhole) throws IOException {
+        DeserializationHandler avroDeserializer = DeserializationFactory.createDeserializer(
+                new ByteArrayInputStream(serialized), DeserializerType.AVRO_DESERIALIZER_VS);
+        for (Object jtsGeometry : avroDeserializer) {
+            blackhole.consume(jtsGeometry);
+        }
+        avroDeserializer.close();
+    }
+}
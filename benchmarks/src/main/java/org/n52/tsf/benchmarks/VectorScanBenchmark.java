@@ -0,0 +1,97 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+
+package org.n52.tsf.benchmarks;
+
+import org.n52.tsf.model.*;
+import org.n52.tsf.model.vector.WorkloadType;
+import org.n52.tsf.model.vector.jts.locationtech.GeometryGeneratorLT;
+import org.n52.tsf.model.vector.jts.vividsolutions.GeometryGeneratorVS;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans of files holding recordCount geometries, each record is read but not used. PROTOBUF_LAZY returns the lazy
+ * handles of the records without decoding their geometries, PROTOBUF and AVRO build every geometry. Records are
+ * written with their envelopes, so the lazy handles carry them without decoding. Run with
+ * {@code java -jar benchmarks/target/benchmarks.jar VectorScanBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class VectorScanBenchmark {
+
+    @Param({"POLYGON_WITH_HOLES", "MULTIPOLYGON"})
+    public WorkloadType workloadType;
+
+    @Param({"1000"})
+    public int vertexCount;
+
+    @Param({"1000"})
+    public int recordCount;
+
+    @Param({"LT", "VS"})
+    public String library;
+
+    @Param({"PROTOBUF", "PROTOBUF_LAZY", "AVRO"})
+    public String format;
+
+    private DeserializerType deserializerType;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Object geometry = "VS".equals(library) ? new GeometryGeneratorVS().create(workloadType, vertexCount)
+                : new GeometryGeneratorLT().create(workloadType, vertexCount);
+        SerializerType serializerType = SerializerType.valueOf(format.replace("_LAZY", "") + "_SERIALIZER_" + library);
+        deserializerType = DeserializerType.valueOf(format + "_DESERIALIZER_" + library);
+        SerializationOptions options = new SerializationOptions();
+        options.setRecordEnvelopes(true);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SerializationHandler serializer = SerializationFactory.createSerializer(output, serializerType, options);
+        for (int i = 0; i < recordCount; i++) {
+            serializer.serialize(geometry);
+        }
+        serializer.close();
+        serialized = output.toByteArray();
+    }
+
+    @Benchmark
+    public int scan(Blackhole blackhole) throws IOException {
+        DeserializationHandler deserializer = DeserializationFactory.createDeserializer(new ByteArrayInputStream(serialized), deserializerType);
+        int count = 0;
+        Object record;
+        while ((record = deserializer.deserialize()) != null) {
+            blackhole.consume(record);
+            count++;
+        }
+        deserializer.close();
+        return count;
+    }
+}
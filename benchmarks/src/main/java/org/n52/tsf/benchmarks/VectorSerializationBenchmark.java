@@ -0,0 +1,134 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.benchmarks;
+
+import org.n52.tsf.model.*;
+import org.n52.tsf.model.vector.WorkloadType;
+import org.n52.tsf.model.vector.jts.locationtech.GeometryGeneratorLT;
+import org.n52.tsf.model.vector.jts.vividsolutions.GeometryGeneratorVS;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization of single vector geometries. The serialize benchmark appends the geometry to
+ * one open serializer, so container headers are not part of the measurement. Run with
+ * {@code java -jar benchmarks/target/benchmarks.jar VectorSerializationBenchmark -prof gc} to add the allocation
+ * rate, the record size of the geometry without the container header is reported by the bytesPerGeometry counter.
+ * The geometries come from the seeded generators, larger workloads are selected with
+ * {@code -p vertexCount=100000000}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class VectorSerializationBenchmark {
+
+    @Param({"POINTS", "LINESTRING", "POLYGON_WITH_HOLES", "NESTED_COLLECTION", "MULTIPOLYGON"})
+    public WorkloadType workloadType;
+
+    @Param({"1000", "100000"})
+    public int vertexCount;
+
+    @Param({"LT", "VS"})
+    public String library;
+
+    @Param({"PROTOBUF", "AVRO"})
+    public String format;
+
+    private Object geometry;
+    private SerializerType serializerType;
+    private DeserializerType deserializerType;
+    private SerializationHandler serializer;
+    private int recordSize;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        geometry = "VS".equals(library) ? new GeometryGeneratorVS().create(workloadType, vertexCount)
+                : new GeometryGeneratorLT().create(workloadType, vertexCount);
+        serializerType = SerializerType.valueOf(format + "_SERIALIZER_" + library);
+        deserializerType = DeserializerType.valueOf(format + "_DESERIALIZER_" + library);
+        serialized = write(geometry);
+        recordSize = serialized.length - write(null).length;
+        serializer = SerializationFactory.createSerializer(new NullOutputStream(), serializerType);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        serializer.close();
+    }
+
+    @Benchmark
+    public void serialize(OutputSize outputSize) throws IOException {
+        serializer.serialize(geometry);
+        outputSize.bytesPerGeometry = recordSize;
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException {
+        DeserializationHandler deserializer = DeserializationFactory.createDeserializer(new ByteArrayInputStream(serialized), deserializerType);
+        Object jtsGeometry = deserializer.deserialize();
+        deserializer.close();
+        return jtsGeometry;
+    }
+
+    /**
+     * @return a container holding the geometry, or an empty container for null
+     */
+    private byte[] write(Object geometry) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SerializationHandler serializer = SerializationFactory.createSerializer(output, serializerType);
+        if (geometry != null) {
+            serializer.serialize(geometry);
+        }
+        serializer.close();
+        return output.toByteArray();
+    }
+
+    /**
+     * Discards the records appended by the serialize benchmark.
+     */
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    /**
+     * Reports the serialized size next to the throughput of the serialize benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class OutputSize {
+        public long bytesPerGeometry;
+    }
+}
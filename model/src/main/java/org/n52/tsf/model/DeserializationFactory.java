@@ -22,11 +22,17 @@ package org.n52.tsf.model;
 import org.apache.log4j.Logger;
 import org.n52.tsf.model.vector.jts.locationtech.AvroDeserializationHandlerLT;
 import org.n52.tsf.model.vector.jts.locationtech.PBDeserializationHandlerLT;
+import org.n52.tsf.model.vector.jts.locationtech.PBIndexedDeserializationHandlerLT;
+import org.n52.tsf.model.vector.jts.locationtech.PBMappedDeserializationHandlerLT;
 import org.n52.tsf.model.vector.jts.vividsolutions.AvroDeserializationHandlerVS;
 import org.n52.tsf.model.vector.jts.vividsolutions.PBDeserializationHandlerVS;
+import org.n52.tsf.model.vector.jts.vividsolutions.PBIndexedDeserializationHandlerVS;
+import org.n52.tsf.model.vector.jts.vividsolutions.PBMappedDeserializationHandlerVS;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class DeserializationFactory {
     private final static Logger logger = Logger.getLogger(DeserializationFactory.class);
@@ -47,10 +53,54 @@ public class DeserializationFactory {
             case PROTOBUF_DESERIALIZER_LT:
                 deserializationHandler = new PBDeserializationHandlerLT(inputStream);
                 break;
+            case PROTOBUF_LAZY_DESERIALIZER_VS:
+                deserializationHandler = new PBDeserializationHandlerVS(inputStream, true);
+                break;
+            case PROTOBUF_LAZY_DESERIALIZER_LT:
+                deserializationHandler = new PBDeserializationHandlerLT(inputStream, true);
+                break;
             default:
                 logger.error("Given deserialization type does not support");
         }
 
         return deserializationHandler;
     }
+
+    /**
+     * Creates a deserializer with random access to the records of an indexed container.
+     */
+    public static IndexedDeserializationHandler createIndexedDeserializer(Path path, DeserializerType deserializerType) throws IOException {
+        IndexedDeserializationHandler deserializationHandler = null;
+
+        switch (deserializerType){
+            case PROTOBUF_INDEXED_DESERIALIZER_VS:
+                deserializationHandler = new PBIndexedDeserializationHandlerVS(path);
+                break;
+            case PROTOBUF_INDEXED_DESERIALIZER_LT:
+                deserializationHandler = new PBIndexedDeserializationHandlerLT(path);
+                break;
+            default:
+                logger.error("Given deserialization type does not support random access");
+        }
+
+        return deserializationHandler;
+    }
+
+    /**
+     * Creates a deserializer reading the file, the mapped and indexed types need a file, the other types read it
+     * as a stream.
+     */
+    public static DeserializationHandler createDeserializer(Path path, DeserializerType deserializerType) throws IOException {
+        switch (deserializerType){
+            case PROTOBUF_MAPPED_DESERIALIZER_VS:
+                return new PBMappedDeserializationHandlerVS(path);
+            case PROTOBUF_MAPPED_DESERIALIZER_LT:
+                return new PBMappedDeserializationHandlerLT(path);
+            case PROTOBUF_INDEXED_DESERIALIZER_VS:
+            case PROTOBUF_INDEXED_DESERIALIZER_LT:
+                return createIndexedDeserializer(path, deserializerType);
+            default:
+                return createDeserializer(Files.newInputStream(path), deserializerType);
+        }
+    }
 }
@@ -21,8 +21,11 @@ package org.n52.tsf.model;
 
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-public abstract class DeserializationHandler {
+public abstract class DeserializationHandler implements Iterable<Object> {
     private DeserializerType deserializerType =  null;
 
     public DeserializationHandler(DeserializerType deserializerType) {
@@ -35,4 +38,34 @@ public abstract class DeserializationHandler {
 
     public abstract Object deserialize() throws IOException;
     public abstract void close() throws IOException;
+
+    /**
+     * Streams the remaining geometries of the input. The iteration ends where {@link #deserialize()} returns null,
+     * read errors are rethrown as {@link UncheckedIOException}.
+     */
+    public Iterator<Object> iterator() {
+        return new Iterator<Object>() {
+            private Object next;
+
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = deserialize();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object geometry = next;
+                next = null;
+                return geometry;
+            }
+        };
+    }
 }
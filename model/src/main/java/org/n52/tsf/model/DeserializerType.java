@@ -20,5 +20,8 @@
 package org.n52.tsf.model;
 
 public enum DeserializerType {
-    PROTOBUF_DESERIALIZER_VS, PROTOBUF_DESERIALIZER_LT, AVRO_DESERIALIZER_VS, AVRO_DESERIALIZER_LT
+    PROTOBUF_DESERIALIZER_VS, PROTOBUF_DESERIALIZER_LT, AVRO_DESERIALIZER_VS, AVRO_DESERIALIZER_LT,
+    PROTOBUF_INDEXED_DESERIALIZER_VS, PROTOBUF_INDEXED_DESERIALIZER_LT,
+    PROTOBUF_MAPPED_DESERIALIZER_VS, PROTOBUF_MAPPED_DESERIALIZER_LT,
+    PROTOBUF_LAZY_DESERIALIZER_VS, PROTOBUF_LAZY_DESERIALIZER_LT
 }
@@ -0,0 +1,62 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model;
+
+import java.io.IOException;
+
+/**
+ * A deserialization handler with random access to the records of an indexed container. {@link #deserialize()}
+ * continues with the record following the last one read or the one given to {@link #seek(long)}.
+ */
+public abstract class IndexedDeserializationHandler extends DeserializationHandler {
+
+    public IndexedDeserializationHandler(DeserializerType deserializerType) {
+        super(deserializerType);
+    }
+
+    /**
+     * @return the number of records in the container
+     */
+    public abstract long getCount();
+
+    /**
+     * @return true if the container holds an R-tree of the record envelopes
+     */
+    public abstract boolean hasSpatialIndex();
+
+    /**
+     * Positions the handler at the given record, the record count positions it at the end of the container.
+     *
+     * @throws IndexOutOfBoundsException if the index is negative or above the record count
+     */
+    public abstract void seek(long index) throws IOException;
+
+    /**
+     * Reads the record at the given index and positions the handler at the record following it.
+     */
+    public Object deserialize(long index) throws IOException {
+        if (index >= getCount()) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + getCount());
+        }
+        seek(index);
+        return deserialize();
+    }
+}
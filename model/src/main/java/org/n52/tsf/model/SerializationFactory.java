@@ -21,8 +21,10 @@ package org.n52.tsf.model;
 
 import org.apache.log4j.Logger;
 import org.n52.tsf.model.vector.jts.locationtech.AvroSerializationHandlerLT;
+import org.n52.tsf.model.vector.jts.locationtech.PBIndexedSerializationHandlerLT;
 import org.n52.tsf.model.vector.jts.locationtech.PBSerializationHandlerLT;
 import org.n52.tsf.model.vector.jts.vividsolutions.AvroSerializationHandlerVS;
+import org.n52.tsf.model.vector.jts.vividsolutions.PBIndexedSerializationHandlerVS;
 import org.n52.tsf.model.vector.jts.vividsolutions.PBSerializationHandlerVS;
 
 import java.io.IOException;
@@ -32,20 +34,31 @@ public class SerializationFactory {
     private final static Logger logger = Logger.getLogger(SerializationFactory.class);
 
     public static SerializationHandler createSerializer(OutputStream outputStream, SerializerType serializerType) throws IOException {
+        return createSerializer(outputStream, serializerType, new SerializationOptions());
+    }
+
+    public static SerializationHandler createSerializer(OutputStream outputStream, SerializerType serializerType,
+                                                        SerializationOptions options) throws IOException {
         SerializationHandler serializationHandler = null;
 
         switch (serializerType){
             case AVRO_SERIALIZER_VS:
-                serializationHandler = new AvroSerializationHandlerVS(outputStream);
+                serializationHandler = new AvroSerializationHandlerVS(outputStream, options);
                 break;
             case PROTOBUF_SERIALIZER_VS:
-                serializationHandler = new PBSerializationHandlerVS(outputStream);
+                serializationHandler = new PBSerializationHandlerVS(outputStream, options);
                 break;
             case AVRO_SERIALIZER_LT:
-                serializationHandler = new AvroSerializationHandlerLT(outputStream);
+                serializationHandler = new AvroSerializationHandlerLT(outputStream, options);
                 break;
             case PROTOBUF_SERIALIZER_LT:
-                serializationHandler = new PBSerializationHandlerLT(outputStream);
+                serializationHandler = new PBSerializationHandlerLT(outputStream, options);
+                break;
+            case PROTOBUF_INDEXED_SERIALIZER_VS:
+                serializationHandler = new PBIndexedSerializationHandlerVS(outputStream, options);
+                break;
+            case PROTOBUF_INDEXED_SERIALIZER_LT:
+                serializationHandler = new PBIndexedSerializationHandlerLT(outputStream, options);
                 break;
             default:
                 logger.error("Given serialization type does not support");
@@ -0,0 +1,332 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.file.DataFileWriter;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Holds the optional settings used by the serialization handlers.
+ */
+public class SerializationOptions {
+    /** Uses the default compression level of the Avro codec. */
+    public static final int DEFAULT_CODEC_LEVEL = -1;
+    public static final int DEFAULT_TILE_SIZE = 256;
+    /** Overview levels cannot be coarser than 2^MAX_OVERVIEW_LEVELS. */
+    public static final int MAX_OVERVIEW_LEVELS = 30;
+    public static final int DEFAULT_INDEX_NODE_SIZE = 16;
+
+    private boolean packedCoordinates = false;
+    private double precisionScale = 0;
+    private boolean recordEnvelopes = false;
+    private String avroCodec = DataFileConstants.NULL_CODEC;
+    private int avroCodecLevel = DEFAULT_CODEC_LEVEL;
+    private int avroSyncInterval = DataFileConstants.DEFAULT_SYNC_INTERVAL;
+    private boolean avroFlushOnEveryBlock = true;
+    private boolean implicitGridPoints = false;
+    private boolean sampleData = false;
+    private int tileSize = DEFAULT_TILE_SIZE;
+    private int overviewLevels = 0;
+    private OverviewResampling overviewResampling = OverviewResampling.NEAREST;
+    private boolean compressedTiles = false;
+    private int parallelism = 1;
+    private ExecutorService tileExecutor;
+    private boolean spatialIndex = false;
+    private int indexNodeSize = DEFAULT_INDEX_NODE_SIZE;
+
+    /**
+     * @return true if coordinates are written as packed ordinate arrays instead of one message per vertex
+     */
+    public boolean isPackedCoordinates() {
+        return packedCoordinates;
+    }
+
+    public void setPackedCoordinates(boolean packedCoordinates) {
+        this.packedCoordinates = packedCoordinates;
+    }
+
+    /**
+     * @return the fixed precision scale, or 0 if coordinates are written as full doubles
+     */
+    public double getPrecisionScale() {
+        return precisionScale;
+    }
+
+    /**
+     * Enables the fixed precision encoding. Coordinates are rounded to {@code Math.round(value * scale)}, as done by
+     * a fixed JTS PrecisionModel with the same scale, and written as deltas between consecutive vertices.
+     *
+     * @param precisionScale the scale, e.g. {@code PrecisionModel.getScale()}, or 0 to disable the encoding
+     */
+    public void setPrecisionScale(double precisionScale) {
+        if (precisionScale < 0 || Double.isNaN(precisionScale) || Double.isInfinite(precisionScale)) {
+            throw new IllegalArgumentException("Invalid precision scale " + precisionScale);
+        }
+        this.precisionScale = precisionScale;
+    }
+
+    public boolean isFixedPrecision() {
+        return precisionScale > 0;
+    }
+
+    /**
+     * @return true if the envelope of every geometry record is written ahead of its coordinates
+     */
+    public boolean isRecordEnvelopes() {
+        return recordEnvelopes;
+    }
+
+    /**
+     * Writes the envelope of every non empty geometry record, which lets filtering deserializers skip records
+     * outside their filter envelope without decoding the coordinates.
+     */
+    public void setRecordEnvelopes(boolean recordEnvelopes) {
+        this.recordEnvelopes = recordEnvelopes;
+    }
+
+    public String getAvroCodec() {
+        return avroCodec;
+    }
+
+    public int getAvroCodecLevel() {
+        return avroCodecLevel;
+    }
+
+    public void setAvroCodec(String avroCodec) {
+        setAvroCodec(avroCodec, DEFAULT_CODEC_LEVEL);
+    }
+
+    /**
+     * Selects the block compression of Avro data files. The codec name is stored in the avro.codec metadata of the
+     * file, so readers pick it up without configuration.
+     *
+     * @param avroCodec      one of the Avro codec names: null, deflate, snappy, bzip2 or xz
+     * @param avroCodecLevel the compression level of deflate (1-9) or xz (0-9), or DEFAULT_CODEC_LEVEL
+     */
+    public void setAvroCodec(String avroCodec, int avroCodecLevel) {
+        if (avroCodecLevel < DEFAULT_CODEC_LEVEL || avroCodecLevel > 9) {
+            throw new IllegalArgumentException("Invalid codec level " + avroCodecLevel);
+        }
+        try {
+            CodecFactory.fromString(avroCodec);
+        } catch (AvroRuntimeException e) {
+            throw new IllegalArgumentException("Unsupported Avro codec " + avroCodec, e);
+        }
+        this.avroCodec = avroCodec;
+        this.avroCodecLevel = avroCodecLevel;
+    }
+
+    public int getAvroSyncInterval() {
+        return avroSyncInterval;
+    }
+
+    /**
+     * @param avroSyncInterval the approximate number of uncompressed bytes written per Avro block, between 32 and 2^30
+     */
+    public void setAvroSyncInterval(int avroSyncInterval) {
+        if (avroSyncInterval < 32 || avroSyncInterval > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid sync interval " + avroSyncInterval);
+        }
+        this.avroSyncInterval = avroSyncInterval;
+    }
+
+    public boolean isAvroFlushOnEveryBlock() {
+        return avroFlushOnEveryBlock;
+    }
+
+    /**
+     * @param avroFlushOnEveryBlock false to flush the underlying stream only on close, or when flushed explicitly
+     */
+    public void setAvroFlushOnEveryBlock(boolean avroFlushOnEveryBlock) {
+        this.avroFlushOnEveryBlock = avroFlushOnEveryBlock;
+    }
+
+    /**
+     * @return true if coverages are written with their grid to CRS transform instead of one grid point per pixel
+     */
+    public boolean isImplicitGridPoints() {
+        return implicitGridPoints;
+    }
+
+    /**
+     * Writes the affine grid to CRS transform of a coverage instead of its grid points, the deserializers compute
+     * the points on access. Coverages with a non affine transform are still written point by point.
+     */
+    public void setImplicitGridPoints(boolean implicitGridPoints) {
+        this.implicitGridPoints = implicitGridPoints;
+    }
+
+    /**
+     * @return true if coverages are written with the sample values of their bands
+     */
+    public boolean isSampleData() {
+        return sampleData;
+    }
+
+    /**
+     * Writes the band samples of a coverage along with its metadata, so the deserializers rebuild the coverage
+     * with its data instead of a blank image.
+     */
+    public void setSampleData(boolean sampleData) {
+        this.sampleData = sampleData;
+    }
+
+    /**
+     * @return the width and height of the tiles of tiled coverages
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public void setTileSize(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Invalid tile size " + tileSize);
+        }
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * @return the number of overview levels written after the full resolution tiles of tiled coverages
+     */
+    public int getOverviewLevels() {
+        return overviewLevels;
+    }
+
+    /**
+     * Writes reduced resolution copies of tiled coverages, level n holding the coverage at 1/2^n of its resolution
+     * in tiles of the same size.
+     *
+     * @param overviewLevels the number of levels, or 0 to write the full resolution tiles only
+     */
+    public void setOverviewLevels(int overviewLevels) {
+        if (overviewLevels < 0 || overviewLevels > MAX_OVERVIEW_LEVELS) {
+            throw new IllegalArgumentException("Invalid overview level count " + overviewLevels);
+        }
+        this.overviewLevels = overviewLevels;
+    }
+
+    public OverviewResampling getOverviewResampling() {
+        return overviewResampling;
+    }
+
+    public void setOverviewResampling(OverviewResampling overviewResampling) {
+        if (overviewResampling == null) {
+            throw new IllegalArgumentException("Overview resampling must not be null");
+        }
+        this.overviewResampling = overviewResampling;
+    }
+
+    /**
+     * @return true if the tiles of tiled coverages are deflate compressed
+     */
+    public boolean isCompressedTiles() {
+        return compressedTiles;
+    }
+
+    public void setCompressedTiles(boolean compressedTiles) {
+        this.compressedTiles = compressedTiles;
+    }
+
+    /**
+     * @return the number of tiles of tiled coverages encoded concurrently
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Encodes the tiles of tiled coverages in parallel, they are still written in order.
+     *
+     * @param parallelism the number of tiles encoded concurrently, 1 to encode them in the calling thread
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the executor encoding the tiles, or null if a ForkJoinPool of {@link #getParallelism()} threads is
+     * created for each coverage when the parallelism is above 1
+     */
+    public ExecutorService getTileExecutor() {
+        return tileExecutor;
+    }
+
+    /**
+     * Encodes the tiles of tiled coverages on a shared executor, e.g. {@code ForkJoinPool.commonPool()}, which is
+     * not shut down by the serializers. {@link #getParallelism()} still bounds the tiles in flight.
+     */
+    public void setTileExecutor(ExecutorService tileExecutor) {
+        this.tileExecutor = tileExecutor;
+    }
+
+    /**
+     * @return true if indexed geometry containers are sorted along a Hilbert curve and carry a packed R-tree
+     */
+    public boolean isSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * Sorts the records of indexed geometry containers by the Hilbert value of their envelope centres and appends
+     * a packed R-tree of the envelopes, the records are held in memory until the container is closed.
+     */
+    public void setSpatialIndex(boolean spatialIndex) {
+        this.spatialIndex = spatialIndex;
+    }
+
+    /**
+     * @return the number of children of the R-tree nodes
+     */
+    public int getIndexNodeSize() {
+        return indexNodeSize;
+    }
+
+    public void setIndexNodeSize(int indexNodeSize) {
+        if (indexNodeSize < 2 || indexNodeSize > 65535) {
+            throw new IllegalArgumentException("Invalid index node size " + indexNodeSize);
+        }
+        this.indexNodeSize = indexNodeSize;
+    }
+
+    /**
+     * Applies the Avro settings to a data file writer, must be called before the file is created.
+     */
+    public void configure(DataFileWriter<?> dataFileWriter) {
+        CodecFactory codecFactory;
+        if (avroCodecLevel != DEFAULT_CODEC_LEVEL && DataFileConstants.DEFLATE_CODEC.equals(avroCodec)) {
+            codecFactory = CodecFactory.deflateCodec(avroCodecLevel);
+        } else if (avroCodecLevel != DEFAULT_CODEC_LEVEL && DataFileConstants.XZ_CODEC.equals(avroCodec)) {
+            codecFactory = CodecFactory.xzCodec(avroCodecLevel);
+        } else {
+            codecFactory = CodecFactory.fromString(avroCodec);
+        }
+        dataFileWriter.setCodec(codecFactory);
+        dataFileWriter.setSyncInterval(avroSyncInterval);
+        dataFileWriter.setFlushOnEveryBlock(avroFlushOnEveryBlock);
+    }
+}
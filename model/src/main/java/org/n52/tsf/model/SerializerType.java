@@ -20,5 +20,6 @@
 package org.n52.tsf.model;
 
 public enum SerializerType {
-    PROTOBUF_SERIALIZER_VS, PROTOBUF_SERIALIZER_LT, AVRO_SERIALIZER_VS, AVRO_SERIALIZER_LT
+    PROTOBUF_SERIALIZER_VS, PROTOBUF_SERIALIZER_LT, AVRO_SERIALIZER_VS, AVRO_SERIALIZER_LT,
+    PROTOBUF_INDEXED_SERIALIZER_VS, PROTOBUF_INDEXED_SERIALIZER_LT
 }
@@ -21,7 +21,9 @@ package org.n52.tsf.model.raster.gt;
 
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.specific.SpecificDatumReader;
+import org.geotools.coverage.NoDataContainer;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridCoverageFactory;
 import org.geotools.geometry.GeneralEnvelope;
@@ -34,9 +36,13 @@ import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.MathTransform;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -53,20 +59,25 @@ public class AvroCovDataDeserializationHandler {
             avroGrid = dataFileReader.next();
         }
         GridCoverageFactory factory = new GridCoverageFactory();
-        BufferedImage image = new BufferedImage(avroGrid.getMaxWidth(), avroGrid.getMaxHight(), avroGrid.getColorSpace());
-        ReferencedEnvelope rEnvelope = new ReferencedEnvelope(0, avroGrid.getMaxWidth(), 0, avroGrid.getMaxHight(), null);
-        MathTransform mathTransform;
-        //TODO add model transformation support
-        if (avroGrid.getXulc().isNaN()) {
-            mathTransform = createMathtransformFromMetaData(avroGrid.getTiePoints().get(0), avroGrid.getPixelScale());
+        RenderedImage image;
+        Map<String, Object> properties = new HashMap<>();
+        if (avroGrid.getSampleData() != null) {
+            org.n52.tsf.serialization.avro.gen.raster.SampleData sampleData = avroGrid.getSampleData();
+            image = SampleDataCodec.createImage(SampleDataCodec.createRaster(avroGrid.getMaxWidth(), avroGrid.getMaxHight(),
+                    sampleData.getNumBands(), sampleData.getDataType().ordinal(), sampleData.getData()));
+            if (sampleData.getNodata() != null) {
+                properties.put(NoDataContainer.GC_NODATA, new NoDataContainer(sampleData.getNodata()));
+            }
         } else {
-            mathTransform = createMathtransformFromTfw(avroGrid);
+            image = new BufferedImage(avroGrid.getMaxWidth(), avroGrid.getMaxHight(), avroGrid.getColorSpace());
         }
-        CoordinateReferenceSystem crs = CRS.decode(avroGrid.getSourceCrs().toString());
+        ReferencedEnvelope rEnvelope = new ReferencedEnvelope(0, avroGrid.getMaxWidth(), 0, avroGrid.getMaxHight(), null);
+        MathTransform mathTransform = createMathTransform(avroGrid);
+        CoordinateReferenceSystem crs = CRSCache.getInstance().decode(avroGrid.getSourceCrs().toString());
         GeneralEnvelope envelope = CRS.transform(mathTransform, rEnvelope);
         envelope.setCoordinateReferenceSystem(crs);
 
-        return factory.create(covName, image, envelope);
+        return factory.create(covName, image, envelope, null, null, properties);
     }
 
     public List<GeoPoint> deserializeToWorld(InputStream inputStream) throws IOException {
@@ -78,7 +89,9 @@ public class AvroCovDataDeserializationHandler {
             avroGrid = dataFileReader.next();
         }
 
-        if (avroGrid.getGridPoints().size() > 0) {
+        if (avroGrid.getGridTransform() != null) {
+            return createGridPointList(avroGrid);
+        } else if (avroGrid.getGridPoints().size() > 0) {
             return avroGrid.getGridPoints().
                     stream().map(this::createGeoPoint).collect(Collectors.toList());
         } else {
@@ -86,7 +99,56 @@ public class AvroCovDataDeserializationHandler {
         }
     }
 
-    private MathTransform createMathtransformFromTfw(org.n52.tsf.serialization.avro.gen.raster.Grid pbGrid) {
+    /**
+     * Reads the grid points written by {@link AvroCovDataSerializationHandler#serializeStreaming} one grid column
+     * at a time, passing them to the consumer in the order of {@link #deserializeToWorld}.
+     *
+     * @return the number of grid points
+     */
+    public int deserializeStreamingToWorld(InputStream inputStream, Consumer<GeoPoint> consumer) throws IOException {
+        DataFileStream<org.n52.tsf.serialization.avro.gen.raster.GridPoints> dataFileReader = new DataFileStream<>(
+                inputStream, new SpecificDatumReader<>(org.n52.tsf.serialization.avro.gen.raster.GridPoints.class));
+        byte[] header = dataFileReader.getMeta(AvroCovDataSerializationHandler.GRID_METADATA);
+        if (header == null) {
+            throw new IOException("No grid in the metadata of the grid point stream");
+        }
+        org.n52.tsf.serialization.avro.gen.raster.Grid avroGrid =
+                new SpecificDatumReader<>(org.n52.tsf.serialization.avro.gen.raster.Grid.class).read(null,
+                        DecoderFactory.get().binaryDecoder(header, null));
+        if (avroGrid.getGridTransform() != null) {
+            List<GeoPoint> gridPoints = createGridPointList(avroGrid);
+            gridPoints.forEach(consumer);
+            return gridPoints.size();
+        }
+        int count = 0;
+        org.n52.tsf.serialization.avro.gen.raster.GridPoints column = null;
+        while (dataFileReader.hasNext()) {
+            column = dataFileReader.next(column);
+            for (org.n52.tsf.serialization.avro.gen.raster.GridPoint gridPoint : column.getGridPoints()) {
+                consumer.accept(createGeoPoint(gridPoint));
+            }
+            count += column.getGridPoints().size();
+        }
+        return count;
+    }
+
+    private static GridPointList createGridPointList(org.n52.tsf.serialization.avro.gen.raster.Grid avroGrid) {
+        org.n52.tsf.serialization.avro.gen.raster.GridTransform gridTransform = avroGrid.getGridTransform();
+        return new GridPointList(avroGrid.getMaxWidth(), avroGrid.getMaxHight(),
+                gridTransform.getScaleX(), gridTransform.getShearX(), gridTransform.getTranslateX(),
+                gridTransform.getShearY(), gridTransform.getScaleY(), gridTransform.getTranslateY());
+    }
+
+    static MathTransform createMathTransform(org.n52.tsf.serialization.avro.gen.raster.Grid avroGrid) {
+        //TODO add model transformation support
+        if (avroGrid.getXulc().isNaN()) {
+            return createMathtransformFromMetaData(avroGrid.getTiePoints().get(0), avroGrid.getPixelScale());
+        } else {
+            return createMathtransformFromTfw(avroGrid);
+        }
+    }
+
+    private static MathTransform createMathtransformFromTfw(org.n52.tsf.serialization.avro.gen.raster.Grid pbGrid) {
         GeneralMatrix gm = new GeneralMatrix(3);
         gm.setElement(0, 0, pbGrid.getXPixelSize());
         gm.setElement(1, 1, pbGrid.getYPixelSize());
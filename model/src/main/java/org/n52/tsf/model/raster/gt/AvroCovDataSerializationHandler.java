@@ -20,30 +20,34 @@
 package org.n52.tsf.model.raster.gt;
 
 import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecordBase;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.coverage.grid.GridGeometry2D;
-import org.geotools.coverage.grid.io.AbstractGridFormat;
-import org.geotools.coverage.grid.io.GridCoverage2DReader;
-import org.geotools.coverage.grid.io.GridFormatFinder;
 import org.geotools.coverage.grid.io.imageio.geotiff.GeoTiffIIOMetadataDecoder;
 import org.geotools.coverage.grid.io.imageio.geotiff.TiePoint;
 import org.geotools.data.WorldFileReader;
 import org.geotools.gce.geotiff.GeoTiffReader;
-import org.geotools.referencing.CRS;
+import org.n52.tsf.model.SerializationOptions;
 import org.n52.tsf.serialization.avro.gen.vector.Coordinate;
 import org.n52.tsf.serialization.avro.gen.vector.Geometry;
 import org.n52.tsf.serialization.protobuf.gen.GeoProtobufCov;
 import org.opengis.coverage.grid.GridCoordinates;
-import org.opengis.coverage.grid.GridEnvelope;
 import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.datum.PixelInCell;
 import org.opengis.referencing.operation.TransformException;
 
+import java.awt.geom.AffineTransform;
+import java.awt.image.ColorModel;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -53,6 +57,18 @@ import static java.lang.Double.NaN;
  * This class provides the Geotools coverage data to ProtoBuf Serialization functionality.
  */
 public class AvroCovDataSerializationHandler {
+    /** The metadata key of the Grid in the data files written by {@link #serializeStreaming}. */
+    static final String GRID_METADATA = "tsf.grid";
+
+    private SerializationOptions options;
+
+    public AvroCovDataSerializationHandler() {
+        this(new SerializationOptions());
+    }
+
+    public AvroCovDataSerializationHandler(SerializationOptions options) {
+        this.options = options;
+    }
 
     public void serialize(File geotifFile, OutputStream outputStream, boolean serializeMetaData) throws Exception {
         org.n52.tsf.serialization.avro.gen.raster.Grid.Builder gridBuilder = org.n52.tsf.serialization.avro.gen.raster.Grid.newBuilder();
@@ -61,37 +77,77 @@ public class AvroCovDataSerializationHandler {
         } else {
             transformGridToWorld(gridBuilder, geotifFile);
         }
-        DatumWriter<org.n52.tsf.serialization.avro.gen.raster.Grid> datumWriter =
-                new SpecificDatumWriter<>(org.n52.tsf.serialization.avro.gen.raster.Grid.class);
-        DataFileWriter<org.n52.tsf.serialization.avro.gen.raster.Grid> dataFileWriter = new DataFileWriter<>(datumWriter);
-        dataFileWriter.create(gridBuilder.build().getSchema(), outputStream);
-        dataFileWriter.append(gridBuilder.build());
-        dataFileWriter.close();
+        writeGrid(gridBuilder.build(), outputStream);
     }
 
     public void serialize(File geotifFile, File tfwfile, OutputStream outputStream) throws Exception {
         org.n52.tsf.serialization.avro.gen.raster.Grid.Builder gridBuilder = org.n52.tsf.serialization.avro.gen.raster.Grid.newBuilder();
         setMetaData(gridBuilder, geotifFile, tfwfile);
+        writeGrid(gridBuilder.build(), outputStream);
+    }
+
+    private void writeGrid(org.n52.tsf.serialization.avro.gen.raster.Grid grid, OutputStream outputStream) throws IOException {
         DatumWriter<org.n52.tsf.serialization.avro.gen.raster.Grid> datumWriter =
                 new SpecificDatumWriter<>(org.n52.tsf.serialization.avro.gen.raster.Grid.class);
         DataFileWriter<org.n52.tsf.serialization.avro.gen.raster.Grid> dataFileWriter = new DataFileWriter<>(datumWriter);
-        dataFileWriter.create(gridBuilder.build().getSchema(), outputStream);
-        dataFileWriter.append(gridBuilder.build());
+        options.configure(dataFileWriter);
+        dataFileWriter.create(grid.getSchema(), outputStream);
+        dataFileWriter.append(grid);
         dataFileWriter.close();
     }
 
+    /**
+     * Writes the coverage with its samples as a tiled container of {@link SerializationOptions#getTileSize()}
+     * square tiles, which {@link TiledCoverageReader} reads window by window, followed by the
+     * {@link SerializationOptions#getOverviewLevels()} overview levels of the coverage.
+     * The tiles are encoded by {@link SerializationOptions#getParallelism()} tasks and written in order.
+     * The Grid and the tiles are written in the Avro binary encoding of the coverage schema.
+     */
+    public void serializeTiled(File geotifFile, OutputStream outputStream) throws Exception {
+        GeoTiffReader fileReader = new GeoTiffReader(geotifFile);
+        GridCoverage2D coverage = null;
+        try {
+            org.n52.tsf.serialization.avro.gen.raster.Grid.Builder gridBuilder = org.n52.tsf.serialization.avro.gen.raster.Grid.newBuilder();
+            setMetaData(gridBuilder, fileReader, null);
+            coverage = fileReader.read(null);
+            RenderedImage image = coverage.getRenderedImage();
+            GeoTiffIIOMetadataDecoder metadata = fileReader.getMetadata();
+            gridBuilder.setSampleData(createSampleData(image, metadata, ByteBuffer.allocate(0)));
+
+            TiledCoverageWriter writer = new TiledCoverageWriter(outputStream, TiledCoverageWriter.FORMAT_AVRO, options,
+                    encode(gridBuilder.build()));
+            writer.write(image, metadata.hasNoData() ? metadata.getNoData() : null,
+                    samples -> encode(createSampleData(image, metadata, samples)));
+        } finally {
+            dispose(fileReader, coverage);
+        }
+    }
+
+    /**
+     * Reads the metadata from the GeoTIFF header, the pixels are only read if the sample data is serialized.
+     */
     public void setMetaData(org.n52.tsf.serialization.avro.gen.raster.Grid.Builder gridBuilder, File geotifFile, File tfwFile) throws IOException, FactoryException {
         GeoTiffReader fileReader = new GeoTiffReader(geotifFile);
+        GridCoverage2D coverage = null;
+        try {
+            setMetaData(gridBuilder, fileReader, tfwFile);
+            if (options.isSampleData()) {
+                coverage = fileReader.read(null);
+                setSampleData(gridBuilder, coverage.getRenderedImage(), fileReader.getMetadata());
+            }
+        } finally {
+            dispose(fileReader, coverage);
+        }
+    }
+
+    private void setMetaData(org.n52.tsf.serialization.avro.gen.raster.Grid.Builder gridBuilder, GeoTiffReader fileReader,
+                             File tfwFile) throws IOException, FactoryException {
         GeoTiffIIOMetadataDecoder metadata = fileReader.getMetadata();
-        AbstractGridFormat format = GridFormatFinder.findFormat(geotifFile);
-        GridCoverage2DReader reader = format.getReader(geotifFile);
-        GridEnvelope dimensions = reader.getOriginalGridRange();
-        GridCoordinates maxDimensions = dimensions.getHigh();
-        GridCoverage2D coverage = reader.read(null);
+        GridCoordinates maxDimensions = fileReader.getOriginalGridRange().getHigh();
         gridBuilder.setMaxWidth(maxDimensions.getCoordinateValue(0) + 1);
         gridBuilder.setMaxHight(maxDimensions.getCoordinateValue(1) + 1);
-        gridBuilder.setSourceCrs(CRS.lookupIdentifier(coverage.getCoordinateReferenceSystem(), true));
-        gridBuilder.setColorSpace(coverage.getRenderedImage().getColorModel().getColorSpace().getType());
+        gridBuilder.setSourceCrs(CRSCache.getInstance().lookupIdentifier(fileReader.getCoordinateReferenceSystem()));
+        gridBuilder.setColorSpace(getColorSpace(fileReader));
 
         List<org.n52.tsf.serialization.avro.gen.raster.GridPoint> gridPoints = new ArrayList<>();
         gridBuilder.setGridPoints(gridPoints);
@@ -125,37 +181,125 @@ public class AvroCovDataSerializationHandler {
         setTFWData(gridBuilder, tfwFile);
     }
 
-    private void transformGridToWorld(org.n52.tsf.serialization.avro.gen.raster.Grid.Builder gridBuilder, File geotifFile) throws IOException, TransformException, FactoryException {
-        AbstractGridFormat format = GridFormatFinder.findFormat(geotifFile);
-        GridCoverage2DReader reader = format.getReader(geotifFile);
-        GridEnvelope dimensions = reader.getOriginalGridRange();
-        GridCoordinates maxDimensions = dimensions.getHigh();
-        int w = maxDimensions.getCoordinateValue(0) + 1;
-        int h = maxDimensions.getCoordinateValue(1) + 1;
-        GridCoverage2D coverage = reader.read(null);
-        GridGeometry2D geometry = coverage.getGridGeometry();
-        List<org.n52.tsf.serialization.avro.gen.raster.GridPoint> gridPoints = new ArrayList<>();
-        for (int i = 0; i < w; i++) {
-            for (int j = 0; j < h; j++) {
+    private void setSampleData(org.n52.tsf.serialization.avro.gen.raster.Grid.Builder gridBuilder, RenderedImage image,
+                               GeoTiffIIOMetadataDecoder metadata) {
+        gridBuilder.setSampleData(createSampleData(image, metadata, SampleDataCodec.writeSamples(image)));
+    }
 
-                org.geotools.geometry.Envelope2D pixelEnvelop =
-                        geometry.gridToWorld(new GridEnvelope2D(i, j, 1, 1));
+    private org.n52.tsf.serialization.avro.gen.raster.SampleData createSampleData(RenderedImage image,
+                                                                                  GeoTiffIIOMetadataDecoder metadata,
+                                                                                  ByteBuffer data) {
+        return new org.n52.tsf.serialization.avro.gen.raster.SampleData(
+                org.n52.tsf.serialization.avro.gen.raster.DataType.values()[SampleDataCodec.getDataType(image)],
+                image.getSampleModel().getNumBands(), metadata.hasNoData() ? metadata.getNoData() : null, data);
+    }
+
+    /**
+     * @return the color space type of the image layout in the GeoTIFF header, the coverage is only read if the
+     * layout has no color model
+     */
+    private static int getColorSpace(GeoTiffReader fileReader) throws IOException {
+        ColorModel colorModel = fileReader.getImageLayout().getColorModel(null);
+        if (colorModel != null) {
+            return colorModel.getColorSpace().getType();
+        }
+        GridCoverage2D coverage = fileReader.read(null);
+        try {
+            return coverage.getRenderedImage().getColorModel().getColorSpace().getType();
+        } finally {
+            coverage.dispose(true);
+        }
+    }
 
-                double latitude = pixelEnvelop.getCenterX();
-                double longitude = pixelEnvelop.getCenterY();
+    private static void dispose(GeoTiffReader fileReader, GridCoverage2D coverage) {
+        if (coverage != null) {
+            coverage.dispose(true);
+        }
+        fileReader.dispose();
+    }
+
+    private static byte[] encode(SpecificRecordBase record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(bytes, null);
+        new SpecificDatumWriter<SpecificRecordBase>(record.getSchema()).write(record, encoder);
+        return bytes.toByteArray();
+    }
+
+    private void transformGridToWorld(org.n52.tsf.serialization.avro.gen.raster.Grid.Builder gridBuilder, File geotifFile) throws IOException, TransformException, FactoryException {
+        GridGeometry2D geometry = setGridMetaData(gridBuilder, geotifFile);
+        if (gridBuilder.getGridTransform() == null) {
+            int w = gridBuilder.getMaxWidth();
+            int h = gridBuilder.getMaxHight();
+            List<org.n52.tsf.serialization.avro.gen.raster.GridPoint> points = new ArrayList<>(w * h);
+            GridToWorldTransform.transform(geometry, w, h, (latitude, longitude) ->
+                    points.add(new org.n52.tsf.serialization.avro.gen.raster.GridPoint(longitude, latitude)));
+            gridBuilder.setGridPoints(points);
+        }
+    }
 
-                org.n52.tsf.serialization.avro.gen.raster.GridPoint.Builder gridPoint =
-                        org.n52.tsf.serialization.avro.gen.raster.GridPoint.newBuilder();
-                gridPoint.setLatitude(latitude);
-                gridPoint.setLongitude(longitude);
-                gridPoints.add(gridPoint.build());
+    /**
+     * Writes the grid points of {@code serialize(geotifFile, outputStream, false)} without holding them in memory:
+     * an Avro data file of GridPoints records, one per grid column, whose {@value #GRID_METADATA} metadata holds the
+     * Grid without grid points. In the implicit grid point mode the file has no records.
+     * {@link AvroCovDataDeserializationHandler#deserializeStreamingToWorld} reads the file column by column.
+     */
+    public void serializeStreaming(File geotifFile, OutputStream outputStream) throws IOException, TransformException, FactoryException {
+        org.n52.tsf.serialization.avro.gen.raster.Grid.Builder gridBuilder = org.n52.tsf.serialization.avro.gen.raster.Grid.newBuilder();
+        GridGeometry2D geometry = setGridMetaData(gridBuilder, geotifFile);
+        DataFileWriter<org.n52.tsf.serialization.avro.gen.raster.GridPoints> dataFileWriter = new DataFileWriter<>(
+                new SpecificDatumWriter<>(org.n52.tsf.serialization.avro.gen.raster.GridPoints.class));
+        options.configure(dataFileWriter);
+        dataFileWriter.setMeta(GRID_METADATA, encode(gridBuilder.build()));
+        dataFileWriter.create(org.n52.tsf.serialization.avro.gen.raster.GridPoints.getClassSchema(), outputStream);
+        try {
+            if (gridBuilder.getGridTransform() == null) {
+                int h = gridBuilder.getMaxHight();
+                List<org.n52.tsf.serialization.avro.gen.raster.GridPoint> column = new ArrayList<>(h);
+                org.n52.tsf.serialization.avro.gen.raster.GridPoints gridPoints =
+                        new org.n52.tsf.serialization.avro.gen.raster.GridPoints(column);
+                GridToWorldTransform.transform(geometry, gridBuilder.getMaxWidth(), h, (latitude, longitude) -> {
+                    column.add(new org.n52.tsf.serialization.avro.gen.raster.GridPoint(longitude, latitude));
+                    if (column.size() == h) {
+                        dataFileWriter.append(gridPoints);
+                        column.clear();
+                    }
+                });
             }
+        } finally {
+            dataFileWriter.close();
         }
+    }
 
-        gridBuilder.setMaxWidth(w);
-        gridBuilder.setMaxHight(h);
-        gridBuilder.setSourceCrs(CRS.lookupIdentifier(coverage.getCoordinateReferenceSystem(), true));
-        gridBuilder.setColorSpace(coverage.getRenderedImage().getColorModel().getColorSpace().getType());
+    /**
+     * Sets the grid metadata read from the GeoTIFF header, and the grid transform in the implicit grid point mode
+     * if the grid to CRS transform is affine. The grid points are left empty.
+     *
+     * @return the grid geometry of the coverage
+     */
+    private GridGeometry2D setGridMetaData(org.n52.tsf.serialization.avro.gen.raster.Grid.Builder gridBuilder, File geotifFile) throws IOException, FactoryException {
+        GeoTiffReader fileReader = new GeoTiffReader(geotifFile);
+        GridGeometry2D geometry;
+        int colorSpace;
+        try {
+            // the geometry of the coverage returned by read(null), without reading the pixels
+            geometry = new GridGeometry2D(fileReader.getOriginalGridRange(), PixelInCell.CELL_CENTER,
+                    fileReader.getOriginalGridToWorld(PixelInCell.CELL_CENTER), fileReader.getCoordinateReferenceSystem(), null);
+            colorSpace = getColorSpace(fileReader);
+        } finally {
+            fileReader.dispose();
+        }
+        GridCoordinates maxDimensions = geometry.getGridRange().getHigh();
+        AffineTransform gridToCRS = GridToWorldTransform.getAffineTransform(geometry);
+        if (options.isImplicitGridPoints() && gridToCRS != null) {
+            gridBuilder.setGridTransform(new org.n52.tsf.serialization.avro.gen.raster.GridTransform(
+                    gridToCRS.getScaleX(), gridToCRS.getShearX(), gridToCRS.getTranslateX(),
+                    gridToCRS.getShearY(), gridToCRS.getScaleY(), gridToCRS.getTranslateY()));
+        }
+
+        gridBuilder.setMaxWidth(maxDimensions.getCoordinateValue(0) + 1);
+        gridBuilder.setMaxHight(maxDimensions.getCoordinateValue(1) + 1);
+        gridBuilder.setSourceCrs(CRSCache.getInstance().lookupIdentifier(geometry.getCoordinateReferenceSystem()));
+        gridBuilder.setColorSpace(colorSpace);
 
         List<org.n52.tsf.serialization.avro.gen.raster.TiePoint> tiePoints = new ArrayList<>();
         gridBuilder.setTiePoints(tiePoints);
@@ -165,8 +309,9 @@ public class AvroCovDataSerializationHandler {
         pixelScale.setScaleY(NaN);
         pixelScale.setScaleZ(NaN);
         gridBuilder.setPixelScale(pixelScale.build());
-        gridBuilder.setGridPoints(gridPoints);
+        gridBuilder.setGridPoints(new ArrayList<>());
         setTFWData(gridBuilder, null);
+        return geometry;
     }
 
     private void setTFWData(org.n52.tsf.serialization.avro.gen.raster.Grid.Builder avroBuilder, File tfwFile) throws IOException {
@@ -0,0 +1,142 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.raster.gt;
+
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the results of {@code CRS.lookupIdentifier} and {@code CRS.decode}, which query the EPSG database on
+ * every call. Identifiers are keyed by the WKT of the CRS and CRSs by their code, each map keeps the least recently
+ * used entries up to the capacity. The shared instance is used by the coverage serialization handlers.
+ */
+public final class CRSCache {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final CRSCache INSTANCE = new CRSCache(DEFAULT_CAPACITY);
+
+    private final Map<String, String> identifiers;
+    private final Map<String, CoordinateReferenceSystem> crses;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public CRSCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid cache capacity " + capacity);
+        }
+        identifiers = createMap(capacity);
+        crses = createMap(capacity);
+    }
+
+    /**
+     * @return the cache shared by the coverage serialization handlers
+     */
+    public static CRSCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the identifier of {@code CRS.lookupIdentifier(crs, true)}, or null if the CRS has no identifier
+     */
+    public String lookupIdentifier(CoordinateReferenceSystem crs) throws FactoryException {
+        String wkt;
+        try {
+            wkt = crs.toWKT();
+        } catch (UnsupportedOperationException e) {
+            // not strictly formattable, the lenient WKT of toString still identifies the CRS
+            wkt = crs.toString();
+        }
+        synchronized (identifiers) {
+            if (identifiers.containsKey(wkt)) {
+                hitCount.incrementAndGet();
+                return identifiers.get(wkt);
+            }
+        }
+        missCount.incrementAndGet();
+        String identifier = CRS.lookupIdentifier(crs, true);
+        synchronized (identifiers) {
+            identifiers.put(wkt, identifier);
+        }
+        return identifier;
+    }
+
+    /**
+     * @return the CRS of {@code CRS.decode(code)}
+     */
+    public CoordinateReferenceSystem decode(String code) throws FactoryException {
+        CoordinateReferenceSystem crs;
+        synchronized (crses) {
+            crs = crses.get(code);
+        }
+        if (crs != null) {
+            hitCount.incrementAndGet();
+            return crs;
+        }
+        missCount.incrementAndGet();
+        crs = CRS.decode(code);
+        synchronized (crses) {
+            crses.put(code, crs);
+        }
+        return crs;
+    }
+
+    /**
+     * @return the number of lookups and decodes answered from the cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of lookups and decodes that queried the EPSG database
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public void clear() {
+        synchronized (identifiers) {
+            identifiers.clear();
+        }
+        synchronized (crses) {
+            crses.clear();
+        }
+        hitCount.set(0);
+        missCount.set(0);
+    }
+
+    private static <V> Map<String, V> createMap(int capacity) {
+        return new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.raster.gt;
+
+import org.n52.tsf.model.raster.gt.beans.GeoPoint;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The grid points of an implicitly encoded coverage, computed from the grid to CRS transform on access.
+ * The points are ordered and calculated like the explicitly written grid points.
+ */
+final class GridPointList extends AbstractList<GeoPoint> implements RandomAccess {
+    private final int width;
+    private final int height;
+    private final int size;
+    private final double scaleX;
+    private final double shearX;
+    private final double translateX;
+    private final double shearY;
+    private final double scaleY;
+    private final double translateY;
+
+    GridPointList(int width, int height, double scaleX, double shearX, double translateX,
+                  double shearY, double scaleY, double translateY) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Invalid grid size " + width + " x " + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.size = Math.multiplyExact(width, height);
+        this.scaleX = scaleX;
+        this.shearX = shearX;
+        this.translateX = translateX;
+        this.shearY = shearY;
+        this.scaleY = scaleY;
+        this.translateY = translateY;
+    }
+
+    @Override
+    public GeoPoint get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int i = index / height;
+        int j = index % height;
+        double latitude = GridToWorldTransform.getPixelCenter(scaleX, shearX, translateX, i, j);
+        double longitude = GridToWorldTransform.getPixelCenter(shearY, scaleY, translateY, i, j);
+        return new GeoPoint(longitude, latitude);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,148 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.raster.gt;
+
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.opengis.metadata.spatial.PixelOrientation;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.TransformException;
+
+import java.awt.geom.AffineTransform;
+import java.io.IOException;
+
+/**
+ * Computes the world coordinates of the pixel centres of a grid, column by column as the coverage handlers write
+ * their grid points. The centre of a pixel is the centre of the envelope {@link GridGeometry2D#gridToWorld}
+ * returns for it. For an affine grid to CRS transform it is calculated from the matrix coefficients and the four
+ * corners of the pixel. Other transforms are applied to the corners, edge midpoints and centre of a whole column
+ * of pixels at once, the points GeoTools samples for the envelope of a single non-affine pixel.
+ */
+final class GridToWorldTransform {
+
+    interface GridPointConsumer {
+        void accept(double latitude, double longitude) throws IOException;
+    }
+
+    /**
+     * Offsets of the points sampled per pixel from its upper left corner: the corners, the edge midpoints and
+     * the centre, in the order GeoTools samples them.
+     */
+    private static final double[][] PIXEL_SAMPLES = {
+            {0, 0}, {1, 0}, {0, 1}, {1, 1}, {0, 0.5}, {0.5, 0}, {0.5, 1}, {1, 0.5}, {0.5, 0.5}};
+
+    private GridToWorldTransform() {
+    }
+
+    /**
+     * Passes the centre of every pixel to the consumer, with i over the width in the outer and j over the
+     * height in the inner loop. The latitude is the x and the longitude the y ordinate of the centre.
+     */
+    static void transform(GridGeometry2D geometry, int width, int height, GridPointConsumer consumer)
+            throws TransformException, IOException {
+        MathTransform2D gridToCRS = geometry.getGridToCRS2D(PixelOrientation.UPPER_LEFT);
+        if (gridToCRS instanceof AffineTransform) {
+            transformAffine((AffineTransform) gridToCRS, width, height, consumer);
+        } else {
+            transformColumns(gridToCRS, width, height, consumer);
+        }
+    }
+
+    /**
+     * @return the transform from the upper left pixel corner to the CRS, or null if it is not affine
+     */
+    static AffineTransform getAffineTransform(GridGeometry2D geometry) {
+        MathTransform2D gridToCRS = geometry.getGridToCRS2D(PixelOrientation.UPPER_LEFT);
+        return gridToCRS instanceof AffineTransform ? (AffineTransform) gridToCRS : null;
+    }
+
+    /**
+     * @return one ordinate of the centre of pixel i, j, given by the row {@code scale * x + shear * y + translate}
+     * of the affine matrix, e.g. {@code getScaleX(), getShearX(), getTranslateX()} for x
+     */
+    static double getPixelCenter(double scale, double shear, double translate, int i, int j) {
+        double minX = i;
+        double maxX = i + 1;
+        double minY = j;
+        double maxY = j + 1;
+        // corners of the pixel, in the order XAffineTransform transforms them
+        double value0 = minX * scale + minY * shear + translate;
+        double value1 = maxX * scale + minY * shear + translate;
+        double value2 = minX * scale + maxY * shear + translate;
+        double value3 = maxX * scale + maxY * shear + translate;
+        double min = Math.min(Math.min(value0, value1), Math.min(value2, value3));
+        double max = Math.max(Math.max(value0, value1), Math.max(value2, value3));
+        return min + (max - min) / 2.0;
+    }
+
+    private static void transformAffine(AffineTransform gridToCRS, int width, int height, GridPointConsumer consumer)
+            throws IOException {
+        double m00 = gridToCRS.getScaleX();
+        double m01 = gridToCRS.getShearX();
+        double m02 = gridToCRS.getTranslateX();
+        double m10 = gridToCRS.getShearY();
+        double m11 = gridToCRS.getScaleY();
+        double m12 = gridToCRS.getTranslateY();
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                consumer.accept(getPixelCenter(m00, m01, m02, i, j), getPixelCenter(m10, m11, m12, i, j));
+            }
+        }
+    }
+
+    private static void transformColumns(MathTransform2D gridToCRS, int width, int height, GridPointConsumer consumer)
+            throws TransformException, IOException {
+        double[] column = new double[2 * PIXEL_SAMPLES.length * height];
+        for (int i = 0; i < width; i++) {
+            int offset = 0;
+            for (int j = 0; j < height; j++) {
+                for (double[] sample : PIXEL_SAMPLES) {
+                    column[offset++] = i + sample[0];
+                    column[offset++] = j + sample[1];
+                }
+            }
+            gridToCRS.transform(column, 0, column, 0, PIXEL_SAMPLES.length * height);
+            offset = 0;
+            for (int j = 0; j < height; j++) {
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int k = 0; k < PIXEL_SAMPLES.length; k++) {
+                    double x = column[offset++];
+                    double y = column[offset++];
+                    if (x < minX) {
+                        minX = x;
+                    }
+                    if (x > maxX) {
+                        maxX = x;
+                    }
+                    if (y < minY) {
+                        minY = y;
+                    }
+                    if (y > maxY) {
+                        maxY = y;
+                    }
+                }
+                consumer.accept(minX + (maxX - minX) / 2.0, minY + (maxY - minY) / 2.0);
+            }
+        }
+    }
+}
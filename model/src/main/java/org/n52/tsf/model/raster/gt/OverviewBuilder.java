@@ -0,0 +1,126 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.raster.gt;
+
+import org.n52.tsf.model.OverviewResampling;
+
+import java.awt.Rectangle;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Computes the tiles of overview levels from the full resolution image. Every overview pixel covers a block of
+ * factor x factor pixels of the image, clipped at the right and bottom edges. The image is read row by row, so
+ * a tile of a coarse level does not hold its whole block of the image in memory.
+ */
+final class OverviewBuilder {
+
+    private OverviewBuilder() {
+    }
+
+    /**
+     * @return the size of a level of the grid, in overview pixels
+     */
+    static int getLevelSize(int size, int factor) {
+        return (int) ((size + (long) factor - 1) / factor);
+    }
+
+    /**
+     * @param bounds the grid region of the tile in the overview level
+     * @param factor the reduction factor of the level
+     * @param nodata the nodata value of the samples, or null
+     * @return a banded raster of the tile whose origin is the upper left corner of the tile
+     */
+    static WritableRaster resample(RenderedImage image, Rectangle bounds, int factor, OverviewResampling resampling,
+                                   Double nodata) {
+        int numBands = image.getSampleModel().getNumBands();
+        int bufferType = image.getSampleModel().getDataType();
+        boolean integral = bufferType != DataBuffer.TYPE_FLOAT && bufferType != DataBuffer.TYPE_DOUBLE;
+        WritableRaster tile = Raster.createWritableRaster(
+                new BandedSampleModel(bufferType, bounds.width, bounds.height, numBands), null);
+        int sourceX = bounds.x * factor;
+        int sourceWidth = Math.min(image.getWidth() - sourceX, bounds.width * factor);
+        double[] row = new double[sourceWidth];
+        double[] sums = new double[bounds.width];
+        int[] counts = new int[bounds.width];
+        for (int band = 0; band < numBands; band++) {
+            for (int y = 0; y < bounds.height; y++) {
+                int sourceY = (bounds.y + y) * factor;
+                if (resampling == OverviewResampling.NEAREST) {
+                    readRow(image, sourceX, Math.min(sourceY + factor / 2, image.getHeight() - 1), band, row);
+                    for (int x = 0; x < bounds.width; x++) {
+                        tile.setSample(x, y, band, row[Math.min(x * factor + factor / 2, sourceWidth - 1)]);
+                    }
+                    continue;
+                }
+                Arrays.fill(sums, 0);
+                Arrays.fill(counts, 0);
+                int sourceEnd = Math.min(sourceY + factor, image.getHeight());
+                for (int rowY = sourceY; rowY < sourceEnd; rowY++) {
+                    readRow(image, sourceX, rowY, band, row);
+                    for (int x = 0; x < sourceWidth; x++) {
+                        double value = row[x];
+                        if (Double.isNaN(value) || (nodata != null && value == nodata)) {
+                            continue;
+                        }
+                        sums[x / factor] += value;
+                        counts[x / factor]++;
+                    }
+                }
+                for (int x = 0; x < bounds.width; x++) {
+                    double value;
+                    if (counts[x] == 0) {
+                        value = nodata != null ? nodata : Double.NaN;
+                    } else {
+                        value = sums[x] / counts[x];
+                        if (integral) {
+                            value = Math.round(value);
+                        }
+                    }
+                    tile.setSample(x, y, band, value);
+                }
+            }
+        }
+        return tile;
+    }
+
+    /**
+     * Reads the samples of a band in a row segment of the image, starting at column x of the image.
+     */
+    private static void readRow(RenderedImage image, int x, int y, int band, double[] row) {
+        int imageX = image.getMinX() + x;
+        int imageY = image.getMinY() + y;
+        int tileY = SampleDataCodec.yToTileY(image, imageY);
+        int maxTileX = SampleDataCodec.xToTileX(image, imageX + row.length - 1);
+        double[] segment = new double[image.getTileWidth()];
+        for (int tileX = SampleDataCodec.xToTileX(image, imageX); tileX <= maxTileX; tileX++) {
+            Raster tile = image.getTile(tileX, tileY);
+            int from = Math.max(imageX, tile.getMinX());
+            int to = Math.min(imageX + row.length, tile.getMinX() + tile.getWidth());
+            segment = tile.getSamples(from, imageY, to - from, 1, band, segment);
+            System.arraycopy(segment, 0, row, from - imageX, to - from);
+        }
+    }
+}
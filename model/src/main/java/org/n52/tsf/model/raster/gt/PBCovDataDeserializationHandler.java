@@ -19,6 +19,9 @@
 
 package org.n52.tsf.model.raster.gt;
 
+import com.google.protobuf.CodedInputStream;
+import org.apache.avro.util.ByteBufferInputStream;
+import org.geotools.coverage.NoDataContainer;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridCoverageFactory;
 import org.geotools.geometry.GeneralEnvelope;
@@ -32,9 +35,20 @@ import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.MathTransform;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -43,28 +57,58 @@ import java.util.stream.Collectors;
 public class PBCovDataDeserializationHandler {
 
     public GridCoverage2D deserialize(String covName, InputStream inputStream) throws Exception {
-        GeoProtobufCov.Grid pbGrid = GeoProtobufCov.Grid.parseFrom(inputStream);
+        return deserialize(covName, GeoProtobufCov.Grid.parseFrom(inputStream));
+    }
+
+    /**
+     * Deserializes a coverage file, parsing the Grid from a memory mapping of the file instead of reading it through
+     * an InputStream. The mapping only saves the read calls on the file, the Grid is still decoded through the
+     * buffer of a stream and built on the heap with all of its messages.
+     */
+    public GridCoverage2D deserialize(String covName, Path path) throws Exception {
+        return deserialize(covName, parseMapped(path));
+    }
+
+    private GridCoverage2D deserialize(String covName, GeoProtobufCov.Grid pbGrid) throws Exception {
         GridCoverageFactory factory = new GridCoverageFactory();
-        BufferedImage image = new BufferedImage(pbGrid.getMaxWidth(), pbGrid.getMaxHight(), pbGrid.getColorSpace());
-        ReferencedEnvelope rEnvelope = new ReferencedEnvelope(0, pbGrid.getMaxWidth(), 0, pbGrid.getMaxHight(), null);
-        MathTransform mathTransform;
-        //TODO add model transformation support
-        if (Double.isNaN(pbGrid.getXulc())) {
-            mathTransform = createMathtransformFromMetaData(pbGrid.getTiePoints(0), pbGrid.getPixelScale());
+        RenderedImage image;
+        Map<String, Object> properties = new HashMap<>();
+        if (pbGrid.hasSampleData()) {
+            GeoProtobufCov.SampleData sampleData = pbGrid.getSampleData();
+            image = SampleDataCodec.createImage(SampleDataCodec.createRaster(pbGrid.getMaxWidth(), pbGrid.getMaxHight(),
+                    sampleData.getNumBands(), sampleData.getDataTypeValue(), sampleData.getData().asReadOnlyByteBuffer()));
+            if (sampleData.getHasNodata()) {
+                properties.put(NoDataContainer.GC_NODATA, new NoDataContainer(sampleData.getNodata()));
+            }
         } else {
-            mathTransform = createMathtransformFromTfw(pbGrid);
+            image = new BufferedImage(pbGrid.getMaxWidth(), pbGrid.getMaxHight(), pbGrid.getColorSpace());
         }
-        CoordinateReferenceSystem crs = CRS.decode(pbGrid.getSourceCrs());
+        ReferencedEnvelope rEnvelope = new ReferencedEnvelope(0, pbGrid.getMaxWidth(), 0, pbGrid.getMaxHight(), null);
+        MathTransform mathTransform = createMathTransform(pbGrid);
+        CoordinateReferenceSystem crs = CRSCache.getInstance().decode(pbGrid.getSourceCrs());
         GeneralEnvelope envelope = CRS.transform(mathTransform, rEnvelope);
         envelope.setCoordinateReferenceSystem(crs);
 
-        return factory.create(covName, image, envelope);
+        return factory.create(covName, image, envelope, null, null, properties);
     }
 
     public List<GeoPoint> deserializeToWorld(InputStream inputStream) throws IOException {
-        GeoProtobufCov.Grid pbGrid = GeoProtobufCov.Grid.parseFrom(inputStream);
+        return deserializeToWorld(GeoProtobufCov.Grid.parseFrom(inputStream));
+    }
+
+    /**
+     * Deserializes the grid points of a coverage file, parsing the Grid from a memory mapping of the file. Written
+     * grid points are all decoded, only coverages written with implicit grid points avoid holding them in memory.
+     */
+    public List<GeoPoint> deserializeToWorld(Path path) throws IOException {
+        return deserializeToWorld(parseMapped(path));
+    }
+
+    private List<GeoPoint> deserializeToWorld(GeoProtobufCov.Grid pbGrid) {
 
-        if (pbGrid.getGridPointsList().size() > 0) {
+        if (pbGrid.hasGridTransform()) {
+            return createGridPointList(pbGrid);
+        } else if (pbGrid.getGridPointsList().size() > 0) {
             return pbGrid.getGridPointsList().
                     stream().map(this::createGeoPoint).collect(Collectors.toList());
         } else {
@@ -72,7 +116,70 @@ public class PBCovDataDeserializationHandler {
         }
     }
 
-    private MathTransform createMathtransformFromTfw(GeoProtobufCov.Grid pbGrid) {
+    /**
+     * Reads the grid points written by {@link PBCovDataSerializationHandler#serializeStreaming} one grid column
+     * at a time, passing them to the consumer in the order of {@link #deserializeToWorld}.
+     *
+     * @return the number of grid points
+     */
+    public int deserializeStreamingToWorld(InputStream inputStream, Consumer<GeoPoint> consumer) throws IOException {
+        GeoProtobufCov.Grid pbGrid = GeoProtobufCov.Grid.parseDelimitedFrom(inputStream);
+        if (pbGrid == null) {
+            throw new EOFException("No grid in the grid point stream");
+        }
+        if (pbGrid.hasGridTransform()) {
+            List<GeoPoint> gridPoints = createGridPointList(pbGrid);
+            gridPoints.forEach(consumer);
+            return gridPoints.size();
+        }
+        int count = 0;
+        GeoProtobufCov.GridPoints column;
+        while ((column = GeoProtobufCov.GridPoints.parseDelimitedFrom(inputStream)) != null) {
+            for (GeoProtobufCov.GridPoint gridPoint : column.getGridPointsList()) {
+                consumer.accept(createGeoPoint(gridPoint));
+            }
+            count += column.getGridPointsCount();
+        }
+        return count;
+    }
+
+    private static GeoProtobufCov.Grid parseMapped(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CodedInputStream input = createInput(mapping);
+            input.setSizeLimit(Integer.MAX_VALUE);
+            return GeoProtobufCov.Grid.parseFrom(input);
+        }
+    }
+
+    /**
+     * Mapped buffers are read as a stream, the direct buffer decoder of protobuf 3.3 does not run on current JVMs.
+     */
+    static CodedInputStream createInput(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return CodedInputStream.newInstance(buffer);
+        }
+        return CodedInputStream.newInstance(new ByteBufferInputStream(Collections.singletonList(buffer)));
+    }
+
+    private static GridPointList createGridPointList(GeoProtobufCov.Grid pbGrid) {
+        GeoProtobufCov.GridTransform gridTransform = pbGrid.getGridTransform();
+        return new GridPointList(pbGrid.getMaxWidth(), pbGrid.getMaxHight(),
+                gridTransform.getScaleX(), gridTransform.getShearX(), gridTransform.getTranslateX(),
+                gridTransform.getShearY(), gridTransform.getScaleY(), gridTransform.getTranslateY());
+    }
+
+    static MathTransform createMathTransform(GeoProtobufCov.Grid pbGrid) {
+        //TODO add model transformation support
+        if (Double.isNaN(pbGrid.getXulc())) {
+            return createMathtransformFromMetaData(pbGrid.getTiePoints(0), pbGrid.getPixelScale());
+        } else {
+            return createMathtransformFromTfw(pbGrid);
+        }
+    }
+
+    private static MathTransform createMathtransformFromTfw(GeoProtobufCov.Grid pbGrid) {
         GeneralMatrix gm = new GeneralMatrix(3);
         gm.setElement(0, 0, pbGrid.getXPixelSize());
         gm.setElement(1, 1, pbGrid.getYPixelSize());
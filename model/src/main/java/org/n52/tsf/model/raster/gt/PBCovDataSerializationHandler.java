@@ -19,23 +19,23 @@
 
 package org.n52.tsf.model.raster.gt;
 
+import com.google.protobuf.UnsafeByteOperations;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.coverage.grid.GridGeometry2D;
-import org.geotools.coverage.grid.io.AbstractGridFormat;
-import org.geotools.coverage.grid.io.GridCoverage2DReader;
-import org.geotools.coverage.grid.io.GridFormatFinder;
 import org.geotools.coverage.grid.io.imageio.geotiff.GeoTiffIIOMetadataDecoder;
 import org.geotools.coverage.grid.io.imageio.geotiff.TiePoint;
 import org.geotools.data.WorldFileReader;
 import org.geotools.gce.geotiff.GeoTiffReader;
-import org.geotools.referencing.CRS;
+import org.n52.tsf.model.SerializationOptions;
 import org.n52.tsf.serialization.protobuf.gen.GeoProtobufCov;
 import org.opengis.coverage.grid.GridCoordinates;
-import org.opengis.coverage.grid.GridEnvelope;
 import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.datum.PixelInCell;
 import org.opengis.referencing.operation.TransformException;
 
+import java.awt.geom.AffineTransform;
+import java.awt.image.ColorModel;
+import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -46,6 +46,15 @@ import static java.lang.Double.NaN;
  * This class provides the Geotools coverage data to ProtoBuf Serialization functionality.
  */
 public class PBCovDataSerializationHandler {
+    private SerializationOptions options;
+
+    public PBCovDataSerializationHandler() {
+        this(new SerializationOptions());
+    }
+
+    public PBCovDataSerializationHandler(SerializationOptions options) {
+        this.options = options;
+    }
 
     public void serialize(File geotifFile, OutputStream outputStream, boolean serializeMetaData) throws Exception {
         GeoProtobufCov.Grid.Builder gridBuilder = GeoProtobufCov.Grid.newBuilder();
@@ -64,18 +73,58 @@ public class PBCovDataSerializationHandler {
     }
 
 
+    /**
+     * Writes the coverage with its samples as a tiled container of {@link SerializationOptions#getTileSize()}
+     * square tiles, which {@link TiledCoverageReader} reads window by window, followed by the
+     * {@link SerializationOptions#getOverviewLevels()} overview levels of the coverage.
+     * The tiles are encoded by {@link SerializationOptions#getParallelism()} tasks and written in order.
+     */
+    public void serializeTiled(File geotifFile, OutputStream outputStream) throws Exception {
+        GeoTiffReader fileReader = new GeoTiffReader(geotifFile);
+        GridCoverage2D coverage = null;
+        try {
+            GeoProtobufCov.Grid.Builder gridBuilder = GeoProtobufCov.Grid.newBuilder();
+            setMetaData(gridBuilder, fileReader, null);
+            coverage = fileReader.read(null);
+            RenderedImage image = coverage.getRenderedImage();
+            GeoTiffIIOMetadataDecoder metadata = fileReader.getMetadata();
+            GeoProtobufCov.SampleData sampleData = createSampleData(image, metadata).build();
+            gridBuilder.setSampleData(sampleData);
+
+            TiledCoverageWriter writer = new TiledCoverageWriter(outputStream, TiledCoverageWriter.FORMAT_PROTOBUF,
+                    options, gridBuilder.build().toByteArray());
+            writer.write(image, metadata.hasNoData() ? metadata.getNoData() : null,
+                    samples -> sampleData.toBuilder().setData(UnsafeByteOperations.unsafeWrap(samples.array())).build().toByteArray());
+        } finally {
+            dispose(fileReader, coverage);
+        }
+    }
+
+    /**
+     * Reads the metadata from the GeoTIFF header, the pixels are only read if the sample data is serialized.
+     */
     public void setMetaData(GeoProtobufCov.Grid.Builder gridBuilder, File geotifFile, File tfwFile) throws IOException, FactoryException {
         GeoTiffReader fileReader = new GeoTiffReader(geotifFile);
+        GridCoverage2D coverage = null;
+        try {
+            setMetaData(gridBuilder, fileReader, tfwFile);
+            if (options.isSampleData()) {
+                coverage = fileReader.read(null);
+                setSampleData(gridBuilder, coverage.getRenderedImage(), fileReader.getMetadata());
+            }
+        } finally {
+            dispose(fileReader, coverage);
+        }
+    }
+
+    private void setMetaData(GeoProtobufCov.Grid.Builder gridBuilder, GeoTiffReader fileReader, File tfwFile)
+            throws IOException, FactoryException {
         GeoTiffIIOMetadataDecoder metadata = fileReader.getMetadata();
-        AbstractGridFormat format = GridFormatFinder.findFormat(geotifFile);
-        GridCoverage2DReader reader = format.getReader(geotifFile);
-        GridEnvelope dimensions = reader.getOriginalGridRange();
-        GridCoordinates maxDimensions = dimensions.getHigh();
-        GridCoverage2D coverage = reader.read(null);
+        GridCoordinates maxDimensions = fileReader.getOriginalGridRange().getHigh();
         gridBuilder.setMaxWidth(maxDimensions.getCoordinateValue(0) + 1);
         gridBuilder.setMaxHight(maxDimensions.getCoordinateValue(1) + 1);
-        gridBuilder.setSourceCrs(CRS.lookupIdentifier(coverage.getCoordinateReferenceSystem(), true));
-        gridBuilder.setColorSpace(coverage.getRenderedImage().getColorModel().getColorSpace().getType());
+        gridBuilder.setSourceCrs(CRSCache.getInstance().lookupIdentifier(fileReader.getCoordinateReferenceSystem()));
+        gridBuilder.setColorSpace(getColorSpace(fileReader));
 
         if (metadata.hasTiePoints()) {
             for (TiePoint tp : metadata.getModelTiePoints()) {
@@ -97,32 +146,129 @@ public class PBCovDataSerializationHandler {
         setTFWData(gridBuilder, tfwFile);
     }
 
-    private void transformGridToWorld(GeoProtobufCov.Grid.Builder gridBuilder, File geotifFile) throws IOException, TransformException {
-        AbstractGridFormat format = GridFormatFinder.findFormat(geotifFile);
-        GridCoverage2DReader reader = format.getReader(geotifFile);
-        GridEnvelope dimensions = reader.getOriginalGridRange();
-        GridCoordinates maxDimensions = dimensions.getHigh();
-        int w = maxDimensions.getCoordinateValue(0) + 1;
-        int h = maxDimensions.getCoordinateValue(1) + 1;
-        GridCoverage2D coverage = reader.read(null);
-        GridGeometry2D geometry = coverage.getGridGeometry();
+    /**
+     * @return the color space type of the image layout in the GeoTIFF header, the coverage is only read if the
+     * layout has no color model
+     */
+    private static int getColorSpace(GeoTiffReader fileReader) throws IOException {
+        ColorModel colorModel = fileReader.getImageLayout().getColorModel(null);
+        if (colorModel != null) {
+            return colorModel.getColorSpace().getType();
+        }
+        GridCoverage2D coverage = fileReader.read(null);
+        try {
+            return coverage.getRenderedImage().getColorModel().getColorSpace().getType();
+        } finally {
+            coverage.dispose(true);
+        }
+    }
+
+    private static void dispose(GeoTiffReader fileReader, GridCoverage2D coverage) {
+        if (coverage != null) {
+            coverage.dispose(true);
+        }
+        fileReader.dispose();
+    }
+
+    private void setSampleData(GeoProtobufCov.Grid.Builder gridBuilder, RenderedImage image, GeoTiffIIOMetadataDecoder metadata) {
+        GeoProtobufCov.SampleData.Builder sampleData = createSampleData(image, metadata);
+        sampleData.setData(UnsafeByteOperations.unsafeWrap(SampleDataCodec.writeSamples(image).array()));
+        gridBuilder.setSampleData(sampleData.build());
+    }
 
-        for (int i = 0; i < w; i++) {
-            for (int j = 0; j < h; j++) {
+    private GeoProtobufCov.SampleData.Builder createSampleData(RenderedImage image, GeoTiffIIOMetadataDecoder metadata) {
+        GeoProtobufCov.SampleData.Builder sampleData = GeoProtobufCov.SampleData.newBuilder();
+        sampleData.setDataTypeValue(SampleDataCodec.getDataType(image));
+        sampleData.setNumBands(image.getSampleModel().getNumBands());
+        if (metadata.hasNoData()) {
+            sampleData.setHasNodata(true);
+            sampleData.setNodata(metadata.getNoData());
+        }
+        return sampleData;
+    }
 
-                org.geotools.geometry.Envelope2D pixelEnvelop =
-                        geometry.gridToWorld(new GridEnvelope2D(i, j, 1, 1));
+    private void transformGridToWorld(GeoProtobufCov.Grid.Builder gridBuilder, File geotifFile) throws IOException, TransformException {
+        GridGeometry2D geometry = readGridGeometry(geotifFile);
+        if (!setGridTransform(gridBuilder, geometry)) {
+            GridCoordinates maxDimensions = geometry.getGridRange().getHigh();
+            GeoProtobufCov.GridPoint.Builder gridPoint = GeoProtobufCov.GridPoint.newBuilder();
+            GridToWorldTransform.transform(geometry, maxDimensions.getCoordinateValue(0) + 1,
+                    maxDimensions.getCoordinateValue(1) + 1, (latitude, longitude) -> {
+                        gridPoint.setLatitude(latitude);
+                        gridPoint.setLongitude(longitude);
+                        gridBuilder.addGridPoints(gridPoint.build());
+                    });
+        }
+        setTFWData(gridBuilder, null);
+    }
 
-                double latitude = pixelEnvelop.getCenterX();
-                double longitude = pixelEnvelop.getCenterY();
+    /**
+     * Writes the grid points of {@code serialize(geotifFile, outputStream, false)} without holding them in memory:
+     * a length-delimited Grid without grid points, followed by one length-delimited GridPoints message per grid
+     * column. In the implicit grid point mode only the Grid is written.
+     * {@link PBCovDataDeserializationHandler#deserializeStreamingToWorld} reads the stream column by column.
+     */
+    public void serializeStreaming(File geotifFile, OutputStream outputStream) throws IOException, TransformException {
+        GridGeometry2D geometry = readGridGeometry(geotifFile);
+        GridCoordinates maxDimensions = geometry.getGridRange().getHigh();
+        int w = maxDimensions.getCoordinateValue(0) + 1;
+        int h = maxDimensions.getCoordinateValue(1) + 1;
+        GeoProtobufCov.Grid.Builder gridBuilder = GeoProtobufCov.Grid.newBuilder();
+        boolean implicitGridPoints = setGridTransform(gridBuilder, geometry);
+        gridBuilder.setMaxWidth(w);
+        gridBuilder.setMaxHight(h);
+        setTFWData(gridBuilder, null);
+        gridBuilder.build().writeDelimitedTo(outputStream);
 
-                GeoProtobufCov.GridPoint.Builder gridPoint = GeoProtobufCov.GridPoint.newBuilder();
+        if (!implicitGridPoints) {
+            GeoProtobufCov.GridPoints.Builder column = GeoProtobufCov.GridPoints.newBuilder();
+            GeoProtobufCov.GridPoint.Builder gridPoint = GeoProtobufCov.GridPoint.newBuilder();
+            GridToWorldTransform.transform(geometry, w, h, (latitude, longitude) -> {
                 gridPoint.setLatitude(latitude);
                 gridPoint.setLongitude(longitude);
-                gridBuilder.addGridPoints(gridPoint.build());
-            }
+                column.addGridPoints(gridPoint.build());
+                if (column.getGridPointsCount() == h) {
+                    column.build().writeDelimitedTo(outputStream);
+                    column.clear();
+                }
+            });
         }
-        setTFWData(gridBuilder, null);
+        outputStream.flush();
+    }
+
+    private static GridGeometry2D readGridGeometry(File geotifFile) throws IOException {
+        GeoTiffReader fileReader = new GeoTiffReader(geotifFile);
+        try {
+            // the geometry of the coverage returned by read(null), without reading the pixels
+            return new GridGeometry2D(fileReader.getOriginalGridRange(), PixelInCell.CELL_CENTER,
+                    fileReader.getOriginalGridToWorld(PixelInCell.CELL_CENTER), fileReader.getCoordinateReferenceSystem(), null);
+        } finally {
+            fileReader.dispose();
+        }
+    }
+
+    /**
+     * Sets the grid size and transform in the implicit grid point mode, if the grid to CRS transform is affine.
+     *
+     * @return true if the grid points are implicit
+     */
+    private boolean setGridTransform(GeoProtobufCov.Grid.Builder gridBuilder, GridGeometry2D geometry) {
+        AffineTransform gridToCRS = GridToWorldTransform.getAffineTransform(geometry);
+        if (!options.isImplicitGridPoints() || gridToCRS == null) {
+            return false;
+        }
+        GridCoordinates maxDimensions = geometry.getGridRange().getHigh();
+        gridBuilder.setMaxWidth(maxDimensions.getCoordinateValue(0) + 1);
+        gridBuilder.setMaxHight(maxDimensions.getCoordinateValue(1) + 1);
+        GeoProtobufCov.GridTransform.Builder gridTransform = GeoProtobufCov.GridTransform.newBuilder();
+        gridTransform.setScaleX(gridToCRS.getScaleX());
+        gridTransform.setShearX(gridToCRS.getShearX());
+        gridTransform.setTranslateX(gridToCRS.getTranslateX());
+        gridTransform.setShearY(gridToCRS.getShearY());
+        gridTransform.setScaleY(gridToCRS.getScaleY());
+        gridTransform.setTranslateY(gridToCRS.getTranslateY());
+        gridBuilder.setGridTransform(gridTransform.build());
+        return true;
     }
 
     private void setTFWData(GeoProtobufCov.Grid.Builder avroBuilder, File tfwFile) throws IOException {
@@ -0,0 +1,284 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.raster.gt;
+
+import javax.media.jai.PlanarImage;
+import javax.media.jai.TiledImage;
+import java.awt.Rectangle;
+import java.awt.image.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Copies the band samples of a coverage image to and from the SampleData layout of both coverage schemas:
+ * band after band, each in row major order, as little endian values of the sample data type.
+ */
+final class SampleDataCodec {
+    // the values match the DataType enums of both schemas
+    static final int BYTE = 0;
+    static final int USHORT = 1;
+    static final int SHORT = 2;
+    static final int INT = 3;
+    static final int FLOAT = 4;
+    static final int DOUBLE = 5;
+
+    private static final int[] BUFFER_TYPES = {DataBuffer.TYPE_BYTE, DataBuffer.TYPE_USHORT, DataBuffer.TYPE_SHORT,
+            DataBuffer.TYPE_INT, DataBuffer.TYPE_FLOAT, DataBuffer.TYPE_DOUBLE};
+    private static final int[] SAMPLE_SIZES = {1, 2, 2, 4, 4, 8};
+
+    private SampleDataCodec() {
+    }
+
+    /**
+     * @return the schema data type of the samples of the image
+     */
+    static int getDataType(RenderedImage image) {
+        return getDataType(image.getSampleModel());
+    }
+
+    static int getDataType(SampleModel sampleModel) {
+        int bufferType = sampleModel.getDataType();
+        for (int dataType = 0; dataType < BUFFER_TYPES.length; dataType++) {
+            if (BUFFER_TYPES[dataType] == bufferType) {
+                return dataType;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sample data type " + bufferType);
+    }
+
+    /**
+     * Copies the samples of all bands tile by tile and row by row, in the typed primitives of the data type.
+     */
+    static ByteBuffer writeSamples(RenderedImage image) {
+        return writeSamples(image, new Rectangle(image.getMinX(), image.getMinY(), image.getWidth(), image.getHeight()));
+    }
+
+    /**
+     * Copies the samples of a region of the image, which must lie within the image bounds.
+     */
+    static ByteBuffer writeSamples(RenderedImage image, Rectangle region) {
+        int dataType = getDataType(image);
+        ByteBuffer buffer = allocate(region, image.getSampleModel().getNumBands(), dataType);
+        int minTileX = xToTileX(image, region.x);
+        int maxTileX = xToTileX(image, region.x + region.width - 1);
+        int minTileY = yToTileY(image, region.y);
+        int maxTileY = yToTileY(image, region.y + region.height - 1);
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+            for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                copySamples(image.getTile(tileX, tileY), region, dataType, buffer);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Copies all samples of the raster.
+     */
+    static ByteBuffer writeSamples(Raster raster) {
+        int dataType = getDataType(raster.getSampleModel());
+        ByteBuffer buffer = allocate(raster.getBounds(), raster.getNumBands(), dataType);
+        copySamples(raster, raster.getBounds(), dataType, buffer);
+        return buffer;
+    }
+
+    /**
+     * @return a banded raster holding the samples, one bank per band
+     */
+    static WritableRaster createRaster(int width, int height, int numBands, int dataType, ByteBuffer samples) {
+        if (dataType < 0 || dataType >= BUFFER_TYPES.length) {
+            throw new IllegalArgumentException("Unsupported sample data type " + dataType);
+        }
+        int planeSize = Math.multiplyExact(width, height);
+        if (samples.remaining() != (long) planeSize * numBands * SAMPLE_SIZES[dataType]) {
+            throw new IllegalArgumentException("Sample data size " + samples.remaining() + " does not match "
+                    + numBands + " bands of " + width + " x " + height);
+        }
+        ByteBuffer buffer = samples.slice().order(ByteOrder.LITTLE_ENDIAN);
+        DataBuffer dataBuffer;
+        switch (dataType) {
+            case BYTE: {
+                DataBufferByte bytes = new DataBufferByte(planeSize, numBands);
+                for (int band = 0; band < numBands; band++) {
+                    buffer.get(bytes.getData(band));
+                }
+                dataBuffer = bytes;
+                break;
+            }
+            case USHORT: {
+                DataBufferUShort shorts = new DataBufferUShort(planeSize, numBands);
+                for (int band = 0; band < numBands; band++) {
+                    getPlane(buffer, band, planeSize * 2).asShortBuffer().get(shorts.getData(band));
+                }
+                dataBuffer = shorts;
+                break;
+            }
+            case SHORT: {
+                DataBufferShort shorts = new DataBufferShort(planeSize, numBands);
+                for (int band = 0; band < numBands; band++) {
+                    getPlane(buffer, band, planeSize * 2).asShortBuffer().get(shorts.getData(band));
+                }
+                dataBuffer = shorts;
+                break;
+            }
+            case INT: {
+                DataBufferInt ints = new DataBufferInt(planeSize, numBands);
+                for (int band = 0; band < numBands; band++) {
+                    getPlane(buffer, band, planeSize * 4).asIntBuffer().get(ints.getData(band));
+                }
+                dataBuffer = ints;
+                break;
+            }
+            case FLOAT: {
+                DataBufferFloat floats = new DataBufferFloat(planeSize, numBands);
+                for (int band = 0; band < numBands; band++) {
+                    getPlane(buffer, band, planeSize * 4).asFloatBuffer().get(floats.getData(band));
+                }
+                dataBuffer = floats;
+                break;
+            }
+            default: {
+                DataBufferDouble doubles = new DataBufferDouble(planeSize, numBands);
+                for (int band = 0; band < numBands; band++) {
+                    getPlane(buffer, band, planeSize * 8).asDoubleBuffer().get(doubles.getData(band));
+                }
+                dataBuffer = doubles;
+            }
+        }
+        SampleModel sampleModel = new BandedSampleModel(BUFFER_TYPES[dataType], width, height, numBands);
+        return Raster.createWritableRaster(sampleModel, dataBuffer, null);
+    }
+
+    /**
+     * @return an image of the raster, with a gray or RGB color model for up to four bands
+     */
+    static RenderedImage createImage(WritableRaster raster) {
+        SampleModel sampleModel = raster.getSampleModel();
+        ColorModel colorModel = PlanarImage.createColorModel(sampleModel);
+        if (colorModel != null) {
+            return new BufferedImage(colorModel, raster, false, null);
+        }
+        TiledImage image = new TiledImage(0, 0, raster.getWidth(), raster.getHeight(), 0, 0, sampleModel, null);
+        image.setData(raster);
+        return image;
+    }
+
+    /**
+     * @return the DataBuffer type of the schema data type
+     */
+    static int getBufferType(int dataType) {
+        if (dataType < 0 || dataType >= BUFFER_TYPES.length) {
+            throw new IllegalArgumentException("Unsupported sample data type " + dataType);
+        }
+        return BUFFER_TYPES[dataType];
+    }
+
+    /**
+     * @return the size in bytes of one sample of the data type
+     */
+    static int getSampleSize(int dataType) {
+        return SAMPLE_SIZES[dataType];
+    }
+
+    static int xToTileX(RenderedImage image, int x) {
+        return Math.floorDiv(x - image.getTileGridXOffset(), image.getTileWidth());
+    }
+
+    static int yToTileY(RenderedImage image, int y) {
+        return Math.floorDiv(y - image.getTileGridYOffset(), image.getTileHeight());
+    }
+
+    private static ByteBuffer allocate(Rectangle region, int numBands, int dataType) {
+        int planeSize = Math.multiplyExact(region.width, region.height);
+        return ByteBuffer.allocate(Math.multiplyExact(Math.multiplyExact(planeSize, numBands), SAMPLE_SIZES[dataType]))
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Copies the samples of the tile lying in the region to their band sequential positions in the buffer.
+     */
+    private static void copySamples(Raster tile, Rectangle region, int dataType, ByteBuffer buffer) {
+        Rectangle bounds = tile.getBounds().intersection(region);
+        if (bounds.isEmpty()) {
+            return;
+        }
+        int planeSize = region.width * region.height;
+        int[] intRow = null;
+        float[] floatRow = null;
+        double[] doubleRow = null;
+        for (int band = 0; band < tile.getNumBands(); band++) {
+            for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+                int index = band * planeSize + (y - region.y) * region.width + (bounds.x - region.x);
+                switch (dataType) {
+                    case FLOAT:
+                        floatRow = tile.getSamples(bounds.x, y, bounds.width, 1, band, floatRow);
+                        putRow(buffer, index, floatRow, bounds.width);
+                        break;
+                    case DOUBLE:
+                        doubleRow = tile.getSamples(bounds.x, y, bounds.width, 1, band, doubleRow);
+                        putRow(buffer, index, doubleRow, bounds.width);
+                        break;
+                    default:
+                        intRow = tile.getSamples(bounds.x, y, bounds.width, 1, band, intRow);
+                        putRow(buffer, index, intRow, bounds.width, dataType);
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer getPlane(ByteBuffer buffer, int band, int planeBytes) {
+        ByteBuffer plane = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        plane.position(band * planeBytes);
+        plane.limit(band * planeBytes + planeBytes);
+        return plane.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void putRow(ByteBuffer buffer, int index, int[] row, int length, int dataType) {
+        switch (dataType) {
+            case BYTE:
+                for (int i = 0; i < length; i++) {
+                    buffer.put(index + i, (byte) row[i]);
+                }
+                break;
+            case USHORT:
+            case SHORT:
+                for (int i = 0; i < length; i++) {
+                    buffer.putShort((index + i) * 2, (short) row[i]);
+                }
+                break;
+            default:
+                for (int i = 0; i < length; i++) {
+                    buffer.putInt((index + i) * 4, row[i]);
+                }
+        }
+    }
+
+    private static void putRow(ByteBuffer buffer, int index, float[] row, int length) {
+        for (int i = 0; i < length; i++) {
+            buffer.putFloat((index + i) * 4, row[i]);
+        }
+    }
+
+    private static void putRow(ByteBuffer buffer, int index, double[] row, int length) {
+        for (int i = 0; i < length; i++) {
+            buffer.putDouble((index + i) * 8, row[i]);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.raster.gt;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.util.ByteBufferInputStream;
+import org.geotools.coverage.NoDataContainer;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.n52.tsf.model.SerializationOptions;
+import org.n52.tsf.serialization.protobuf.gen.GeoProtobufCov;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import java.awt.Rectangle;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads windows of a tiled coverage container written by {@code serializeTiled} of the Protobuf or Avro coverage
+ * serialization handlers. Only the header and the tile index are read when the container is opened, a window
+ * reads just the tiles it intersects with positional reads. Level 0 is the full resolution grid, the overview
+ * levels 1 to {@code getLevelCount() - 1} reduce it by 2^level.
+ * <p>
+ * A memory mapped reader decodes the header, the index and the tiles straight from the mapping of the file, so
+ * repeated reads of the same file are served by the page cache of the OS instead of copies on the heap.
+ */
+public class TiledCoverageReader implements Closeable {
+    private static final int MAPPING_SIZE = 1 << 30;
+
+    private final String name;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] mappings;
+    private final int format;
+    private final int compression;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int width;
+    private final int height;
+    private final int[] levelWidths;
+    private final int[] levelHeights;
+    private final int dataType;
+    private final int numBands;
+    private final Double nodata;
+    private final CoordinateReferenceSystem crs;
+    private final MathTransform gridToCRS;
+    private final long[][] offsets;
+    private final int[][] lengths;
+
+    public TiledCoverageReader(Path path) throws IOException, FactoryException {
+        this(path, false);
+    }
+
+    /**
+     * @param memoryMapped true to map the file into memory, false to read it with positional reads
+     */
+    public TiledCoverageReader(Path path, boolean memoryMapped) throws IOException, FactoryException {
+        name = path.getFileName().toString();
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            mappings = memoryMapped ? map(channel) : null;
+            ByteBuffer preamble = read(0, TiledCoverageWriter.PREAMBLE_SIZE);
+            checkMagic(preamble);
+            int version = preamble.get();
+            if (version != TiledCoverageWriter.VERSION) {
+                throw new IOException("Unsupported tiled coverage version " + version);
+            }
+            format = preamble.get();
+            compression = preamble.get();
+            if (compression != TiledCoverageWriter.COMPRESSION_NONE && compression != TiledCoverageWriter.COMPRESSION_DEFLATE) {
+                throw new IOException("Unsupported tiled coverage compression " + compression);
+            }
+            tileWidth = preamble.getInt();
+            tileHeight = preamble.getInt();
+            ByteBuffer header = read(TiledCoverageWriter.PREAMBLE_SIZE, preamble.getInt());
+
+            if (format == TiledCoverageWriter.FORMAT_PROTOBUF) {
+                GeoProtobufCov.Grid pbGrid = GeoProtobufCov.Grid.parseFrom(PBCovDataDeserializationHandler.createInput(header));
+                GeoProtobufCov.SampleData sampleData = pbGrid.getSampleData();
+                width = pbGrid.getMaxWidth();
+                height = pbGrid.getMaxHight();
+                dataType = sampleData.getDataTypeValue();
+                numBands = sampleData.getNumBands();
+                nodata = sampleData.getHasNodata() ? sampleData.getNodata() : null;
+                crs = CRSCache.getInstance().decode(pbGrid.getSourceCrs());
+                gridToCRS = PBCovDataDeserializationHandler.createMathTransform(pbGrid);
+            } else if (format == TiledCoverageWriter.FORMAT_AVRO) {
+                org.n52.tsf.serialization.avro.gen.raster.Grid avroGrid =
+                        new SpecificDatumReader<>(org.n52.tsf.serialization.avro.gen.raster.Grid.class).read(null,
+                                createDecoder(header));
+                org.n52.tsf.serialization.avro.gen.raster.SampleData sampleData = avroGrid.getSampleData();
+                width = avroGrid.getMaxWidth();
+                height = avroGrid.getMaxHight();
+                dataType = sampleData.getDataType().ordinal();
+                numBands = sampleData.getNumBands();
+                nodata = sampleData.getNodata();
+                crs = CRSCache.getInstance().decode(avroGrid.getSourceCrs().toString());
+                gridToCRS = AvroCovDataDeserializationHandler.createMathTransform(avroGrid);
+            } else {
+                throw new IOException("Unsupported tiled coverage format " + format);
+            }
+
+            long trailerOffset = channel.size() - TiledCoverageWriter.TRAILER_SIZE;
+            ByteBuffer trailer = read(trailerOffset, TiledCoverageWriter.TRAILER_SIZE);
+            long indexOffset = trailer.getLong();
+            checkMagic(trailer);
+            if (indexOffset < 0 || indexOffset > trailerOffset - 4) {
+                throw new IOException("Invalid tile index offset " + indexOffset);
+            }
+            ByteBuffer index = read(indexOffset, (int) (trailerOffset - indexOffset));
+            int levelCount = index.getInt();
+            if (levelCount < 1 || levelCount > SerializationOptions.MAX_OVERVIEW_LEVELS + 1) {
+                throw new IOException("Invalid level count " + levelCount);
+            }
+            levelWidths = new int[levelCount];
+            levelHeights = new int[levelCount];
+            offsets = new long[levelCount][];
+            lengths = new int[levelCount][];
+            for (int level = 0; level < levelCount; level++) {
+                levelWidths[level] = index.getInt();
+                levelHeights[level] = index.getInt();
+                if (levelWidths[level] != OverviewBuilder.getLevelSize(width, 1 << level)
+                        || levelHeights[level] != OverviewBuilder.getLevelSize(height, 1 << level)) {
+                    throw new IOException("Level " + level + " does not match the grid");
+                }
+                int tileCount = TiledCoverageWriter.getTilesAcross(levelWidths[level], tileWidth)
+                        * TiledCoverageWriter.getTilesAcross(levelHeights[level], tileHeight);
+                offsets[level] = new long[tileCount];
+                lengths[level] = new int[tileCount];
+                for (int i = 0; i < tileCount; i++) {
+                    offsets[level][i] = index.getLong();
+                    lengths[level][i] = index.getInt();
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            channel.close();
+            throw new IOException("Truncated tile index in " + name, e);
+        } catch (IOException | FactoryException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the grid range of the whole coverage
+     */
+    public GridEnvelope2D getGridRange() {
+        return getGridRange(0);
+    }
+
+    /**
+     * @return the grid range of a level, in pixels of the level
+     */
+    public GridEnvelope2D getGridRange(int level) {
+        checkLevel(level);
+        return new GridEnvelope2D(0, 0, levelWidths[level], levelHeights[level]);
+    }
+
+    /**
+     * @return the number of levels, 1 if the container holds no overviews
+     */
+    public int getLevelCount() {
+        return levelWidths.length;
+    }
+
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * @return the size of a full resolution pixel in CRS units, the smaller one of its width and height
+     */
+    public double getResolution() throws TransformException {
+        double[] points = {0, 0, 1, 0, 0, 1};
+        gridToCRS.transform(points, 0, points, 0, 3);
+        return Math.min(Math.hypot(points[2] - points[0], points[3] - points[1]),
+                Math.hypot(points[4] - points[0], points[5] - points[1]));
+    }
+
+    /**
+     * @param resolution the pixel size in CRS units wanted by the client
+     * @return the coarsest level whose pixels are not larger than the resolution, 0 if even the full resolution
+     * pixels are larger
+     */
+    public int selectLevel(double resolution) throws TransformException {
+        double levelResolution = getResolution();
+        int level = 0;
+        while (level + 1 < getLevelCount() && levelResolution * 2 <= resolution) {
+            levelResolution *= 2;
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * @return the samples of one full resolution tile, located at the grid position of the tile
+     */
+    public Raster readTile(int tileX, int tileY) throws IOException {
+        return readTile(0, tileX, tileY);
+    }
+
+    /**
+     * @return the samples of one tile of a level, located at the position of the tile in the grid of the level
+     */
+    public Raster readTile(int level, int tileX, int tileY) throws IOException {
+        checkLevel(level);
+        Rectangle bounds = TiledCoverageWriter.getTileBounds(tileX, tileY, tileWidth, tileHeight,
+                levelWidths[level], levelHeights[level]);
+        if (tileX < 0 || tileY < 0 || bounds.isEmpty()) {
+            throw new IllegalArgumentException("No tile " + tileX + ", " + tileY + " in level " + level);
+        }
+        int tile = tileY * TiledCoverageWriter.getTilesAcross(levelWidths[level], tileWidth) + tileX;
+        ByteBuffer record = read(offsets[level][tile], lengths[level][tile]);
+        if (compression == TiledCoverageWriter.COMPRESSION_DEFLATE) {
+            record = inflate(record);
+        }
+        ByteBuffer samples;
+        if (format == TiledCoverageWriter.FORMAT_PROTOBUF) {
+            samples = GeoProtobufCov.SampleData.parseFrom(PBCovDataDeserializationHandler.createInput(record)).getData().asReadOnlyByteBuffer();
+        } else {
+            samples = new SpecificDatumReader<>(org.n52.tsf.serialization.avro.gen.raster.SampleData.class).read(null,
+                    createDecoder(record)).getData();
+        }
+        return SampleDataCodec.createRaster(bounds.width, bounds.height, numBands, dataType, samples)
+                .createTranslatedChild(bounds.x, bounds.y);
+    }
+
+    /**
+     * Reads a window of the coverage, only the tiles intersecting the window are read.
+     *
+     * @param window a grid region within {@link #getGridRange()}
+     * @return a coverage of the window, georeferenced like the window in the whole coverage
+     */
+    public GridCoverage2D readWindow(GridEnvelope2D window) throws IOException, TransformException {
+        return createCoverage(readRaster(window), window, 1);
+    }
+
+    /**
+     * Reads a window of the coverage from the level selected by {@link #selectLevel(double)} for the resolution.
+     *
+     * @param window     a grid region within {@link #getGridRange()}, in full resolution pixels
+     * @param resolution the pixel size in CRS units wanted by the client
+     * @return a coverage of the overview pixels covering the window, their blocks of full resolution pixels
+     * include the window and are georeferenced like them
+     */
+    public GridCoverage2D readWindow(GridEnvelope2D window, double resolution) throws IOException, TransformException {
+        checkWindow(window, 0);
+        int level = selectLevel(resolution);
+        int factor = 1 << level;
+        int minX = window.x / factor;
+        int minY = window.y / factor;
+        GridEnvelope2D levelWindow = new GridEnvelope2D(minX, minY,
+                OverviewBuilder.getLevelSize(window.x + window.width, factor) - minX,
+                OverviewBuilder.getLevelSize(window.y + window.height, factor) - minY);
+        return createCoverage(readRaster(level, levelWindow), levelWindow, factor);
+    }
+
+    /**
+     * @return the samples of the window in a raster whose origin is the upper left corner of the window
+     */
+    public WritableRaster readRaster(GridEnvelope2D window) throws IOException {
+        return readRaster(0, window);
+    }
+
+    /**
+     * @param window a grid region within {@link #getGridRange(int)} of the level
+     * @return the samples of the window in a raster whose origin is the upper left corner of the window
+     */
+    public WritableRaster readRaster(int level, GridEnvelope2D window) throws IOException {
+        checkWindow(window, level);
+        WritableRaster raster = Raster.createWritableRaster(new BandedSampleModel(
+                SampleDataCodec.getBufferType(dataType), window.width, window.height, numBands), null);
+        int minTileX = window.x / tileWidth;
+        int maxTileX = (window.x + window.width - 1) / tileWidth;
+        int minTileY = window.y / tileHeight;
+        int maxTileY = (window.y + window.height - 1) / tileHeight;
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+            for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                Raster tile = readTile(level, tileX, tileY);
+                raster.setRect(-window.x, -window.y, tile);
+            }
+        }
+        return raster;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @param window the window of the raster, in pixels of a level reducing the grid by the factor
+     */
+    private GridCoverage2D createCoverage(WritableRaster raster, GridEnvelope2D window, int factor)
+            throws TransformException {
+        ReferencedEnvelope rEnvelope = new ReferencedEnvelope((double) window.x * factor,
+                (double) (window.x + window.width) * factor, (double) window.y * factor,
+                (double) (window.y + window.height) * factor, null);
+        GeneralEnvelope envelope = CRS.transform(gridToCRS, rEnvelope);
+        envelope.setCoordinateReferenceSystem(crs);
+        Map<String, Object> properties = new HashMap<>();
+        if (nodata != null) {
+            properties.put(NoDataContainer.GC_NODATA, new NoDataContainer(nodata));
+        }
+        return new GridCoverageFactory().create(name, SampleDataCodec.createImage(raster), envelope, null, null, properties);
+    }
+
+    private void checkLevel(int level) {
+        if (level < 0 || level >= getLevelCount()) {
+            throw new IllegalArgumentException("No level " + level + ", the container has " + getLevelCount());
+        }
+    }
+
+    private void checkWindow(GridEnvelope2D window, int level) {
+        if (window.isEmpty() || !getGridRange(level).contains(window)) {
+            throw new IllegalArgumentException("Window " + window + " is not within the grid range "
+                    + getGridRange(level) + " of level " + level);
+        }
+    }
+
+    /**
+     * @return a view of the mapping, or a buffer filled by a positional read if the region is not within one
+     * mapping or the file is not mapped
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (mappings != null) {
+            int index = (int) (position / MAPPING_SIZE);
+            int offset = (int) (position % MAPPING_SIZE);
+            if (index < mappings.length && offset + (long) length <= mappings[index].capacity()) {
+                ByteBuffer region = mappings[index].duplicate();
+                region.limit(offset + length);
+                region.position(offset);
+                return region.slice();
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of tiled coverage " + name);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer inflate(ByteBuffer compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            if (compressed.hasArray()) {
+                inflater.setInput(compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+            } else {
+                byte[] input = new byte[compressed.remaining()];
+                compressed.duplicate().get(input);
+                inflater.setInput(input);
+            }
+            ByteArrayOutputStream record = new ByteArrayOutputStream(compressed.remaining() * 2);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("Truncated compressed tile");
+                }
+                record.write(buffer, 0, length);
+            }
+            return ByteBuffer.wrap(record.toByteArray());
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed tile", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static BinaryDecoder createDecoder(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return DecoderFactory.get().binaryDecoder(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    buffer.remaining(), null);
+        }
+        return DecoderFactory.get().binaryDecoder(new ByteBufferInputStream(Collections.singletonList(buffer)), null);
+    }
+
+    /**
+     * Maps the file in segments of MAPPING_SIZE bytes, the last one holding the rest of the file.
+     */
+    private static MappedByteBuffer[] map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        MappedByteBuffer[] mappings = new MappedByteBuffer[(int) ((size + MAPPING_SIZE - 1) / MAPPING_SIZE)];
+        for (int i = 0; i < mappings.length; i++) {
+            long position = (long) i * MAPPING_SIZE;
+            mappings[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPING_SIZE, size - position));
+        }
+        return mappings;
+    }
+
+    private static void checkMagic(ByteBuffer buffer) throws IOException {
+        byte[] magic = new byte[TiledCoverageWriter.MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, TiledCoverageWriter.MAGIC)) {
+            throw new IOException("Not a tiled coverage");
+        }
+    }
+}
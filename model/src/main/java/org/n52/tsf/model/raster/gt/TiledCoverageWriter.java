@@ -0,0 +1,252 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.raster.gt;
+
+import org.n52.tsf.model.OverviewResampling;
+import org.n52.tsf.model.SerializationOptions;
+
+import java.awt.Rectangle;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the tiled coverage container read by {@link TiledCoverageReader}:
+ * <pre>
+ * magic "TSFT", version, format (0 Protobuf, 1 Avro), compression (0 none, 1 deflate), tile width, tile height,
+ * header length, header: the Grid of the coverage with an empty SampleData describing the samples,
+ * tiles: one SampleData per tile, level by level and row by row of tiles, edge tiles clipped to the level,
+ * index: level count, then per level its width, height and the offset and length of every tile,
+ * trailer: index offset, magic "TSFT"
+ * </pre>
+ * Level 0 holds the full resolution grid, level n the overview reduced by 2^n.
+ * Numbers are big endian, the Grid and SampleData records are encoded in the format of the container, compressed
+ * tiles hold the zlib stream of their record.
+ * <p>
+ * With a parallelism above 1 the tiles are resampled, encoded and compressed concurrently, at most twice the
+ * parallelism tiles are in flight and they are written in order as they complete.
+ */
+final class TiledCoverageWriter {
+    static final byte[] MAGIC = "TSFT".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 3;
+    static final int FORMAT_PROTOBUF = 0;
+    static final int FORMAT_AVRO = 1;
+    static final int COMPRESSION_NONE = 0;
+    static final int COMPRESSION_DEFLATE = 1;
+    // magic, version, format, compression, tile width, tile height, header length
+    static final int PREAMBLE_SIZE = 4 + 1 + 1 + 1 + 4 + 4 + 4;
+    // index offset, magic
+    static final int TRAILER_SIZE = 8 + 4;
+
+    /**
+     * Encodes the samples of a tile to its SampleData record, called concurrently in parallel mode.
+     */
+    interface TileEncoder {
+        byte[] encode(ByteBuffer samples) throws IOException;
+    }
+
+    private final DataOutputStream output;
+    private final SerializationOptions options;
+    private final int tileSize;
+    private long position;
+
+    TiledCoverageWriter(OutputStream outputStream, int format, SerializationOptions options, byte[] header)
+            throws IOException {
+        output = new DataOutputStream(outputStream);
+        this.options = options;
+        tileSize = options.getTileSize();
+        output.write(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(format);
+        output.writeByte(options.isCompressedTiles() ? COMPRESSION_DEFLATE : COMPRESSION_NONE);
+        output.writeInt(tileSize);
+        output.writeInt(tileSize);
+        output.writeInt(header.length);
+        output.write(header);
+        position = PREAMBLE_SIZE + header.length;
+    }
+
+    /**
+     * Writes the tiles of the image and of its overview levels, then the index and the trailer, and flushes the
+     * stream. The stream is not closed.
+     *
+     * @param nodata the nodata value skipped by the average resampling, or null
+     */
+    void write(RenderedImage image, Double nodata, TileEncoder encoder) throws IOException {
+        int levelCount = options.getOverviewLevels() + 1;
+        int[] levelWidths = new int[levelCount];
+        int[] levelHeights = new int[levelCount];
+        int[] levelTiles = new int[levelCount];
+        int tileTotal = 0;
+        for (int level = 0; level < levelCount; level++) {
+            levelWidths[level] = OverviewBuilder.getLevelSize(image.getWidth(), 1 << level);
+            levelHeights[level] = OverviewBuilder.getLevelSize(image.getHeight(), 1 << level);
+            levelTiles[level] = getTilesAcross(levelWidths[level], tileSize) * getTilesAcross(levelHeights[level], tileSize);
+            tileTotal = Math.addExact(tileTotal, levelTiles[level]);
+        }
+        long[] offsets = new long[tileTotal];
+        int[] lengths = new int[tileTotal];
+
+        ExecutorService executor = options.getTileExecutor();
+        boolean ownExecutor = executor == null && options.getParallelism() > 1;
+        if (ownExecutor) {
+            executor = new ForkJoinPool(options.getParallelism());
+        }
+        ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+        int window = options.getParallelism() * 2;
+        int written = 0;
+        try {
+            for (int level = 0; level < levelCount; level++) {
+                int tilesAcross = getTilesAcross(levelWidths[level], tileSize);
+                for (int tile = 0; tile < levelTiles[level]; tile++) {
+                    Rectangle bounds = getTileBounds(tile % tilesAcross, tile / tilesAcross, tileSize, tileSize,
+                            levelWidths[level], levelHeights[level]);
+                    Callable<byte[]> task = createTask(image, level, bounds, nodata, encoder);
+                    if (executor == null) {
+                        written = writeTile(task.call(), written, offsets, lengths);
+                        continue;
+                    }
+                    if (pending.size() == window) {
+                        written = writeTile(getTile(pending.poll()), written, offsets, lengths);
+                    }
+                    pending.add(executor.submit(task));
+                }
+            }
+            while (!pending.isEmpty()) {
+                written = writeTile(getTile(pending.poll()), written, offsets, lengths);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding the tiles");
+        } catch (Exception e) {
+            throw new IOException("Encoding the tiles failed", e);
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            if (ownExecutor) {
+                executor.shutdownNow();
+            }
+        }
+
+        long indexOffset = position;
+        output.writeInt(levelCount);
+        int tile = 0;
+        for (int level = 0; level < levelCount; level++) {
+            output.writeInt(levelWidths[level]);
+            output.writeInt(levelHeights[level]);
+            for (int i = 0; i < levelTiles[level]; i++, tile++) {
+                output.writeLong(offsets[tile]);
+                output.writeInt(lengths[tile]);
+            }
+        }
+        output.writeLong(indexOffset);
+        output.write(MAGIC);
+        output.flush();
+    }
+
+    private Callable<byte[]> createTask(RenderedImage image, int level, Rectangle bounds, Double nodata,
+                                        TileEncoder encoder) {
+        boolean compressed = options.isCompressedTiles();
+        OverviewResampling resampling = options.getOverviewResampling();
+        return () -> {
+            ByteBuffer samples;
+            if (level == 0) {
+                bounds.translate(image.getMinX(), image.getMinY());
+                samples = SampleDataCodec.writeSamples(image, bounds);
+            } else {
+                samples = SampleDataCodec.writeSamples(OverviewBuilder.resample(image, bounds, 1 << level,
+                        resampling, nodata));
+            }
+            byte[] tile = encoder.encode(samples);
+            return compressed ? deflate(tile) : tile;
+        };
+    }
+
+    private int writeTile(byte[] tile, int index, long[] offsets, int[] lengths) throws IOException {
+        offsets[index] = position;
+        lengths[index] = tile.length;
+        output.write(tile);
+        position += tile.length;
+        return index + 1;
+    }
+
+    /**
+     * Waits for an encoded tile, rethrowing the IOException of the encoder, which a ForkJoinPool wraps in a
+     * RuntimeException.
+     */
+    private static byte[] getTile(Future<byte[]> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static int getTilesAcross(int width, int tileWidth) {
+        return (width + tileWidth - 1) / tileWidth;
+    }
+
+    /**
+     * @return the grid region of a tile, clipped to the grid
+     */
+    static Rectangle getTileBounds(int tileX, int tileY, int tileWidth, int tileHeight, int width, int height) {
+        int x = tileX * tileWidth;
+        int y = tileY * tileHeight;
+        return new Rectangle(x, y, Math.min(tileWidth, width - x), Math.min(tileHeight, height - y));
+    }
+}
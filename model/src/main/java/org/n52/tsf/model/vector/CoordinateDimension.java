@@ -0,0 +1,94 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector;
+
+/**
+ * The coordinate dimensions of the GeoProtobuf and Avro vector schemas. The values match the Dimension enum
+ * of both schemas, the ordinate indexes match CoordinateSequence of both JTS libraries.
+ */
+public final class CoordinateDimension {
+    /** Written before the dimension existed: x, y, z coordinates and packed ordinates, x, y deltas. */
+    public static final int LEGACY = 0;
+    public static final int XY = 1;
+    public static final int XYZ = 2;
+    public static final int XYM = 3;
+    public static final int XYZM = 4;
+
+    private static final int X = 0;
+    private static final int Y = 1;
+    private static final int Z = 2;
+    private static final int M = 3;
+
+    private static final int[][] ORDINATES = {{X, Y, Z}, {X, Y}, {X, Y, Z}, {X, Y, M}, {X, Y, Z, M}};
+    private static final int[] LEGACY_DELTA_ORDINATES = {X, Y};
+    private static final int[] SEQUENCE_DIMENSIONS = {3, 2, 3, 4, 4};
+
+    private CoordinateDimension() {
+    }
+
+    public static int valueOf(boolean hasZ, boolean hasM) {
+        if (hasZ) {
+            return hasM ? XYZM : XYZ;
+        } else {
+            return hasM ? XYM : XY;
+        }
+    }
+
+    /**
+     * @return the CoordinateSequence ordinate indexes stored per vertex, in the order they are written
+     */
+    public static int[] getOrdinates(int dimension) {
+        return ORDINATES[checkDimension(dimension)];
+    }
+
+    /**
+     * @return the CoordinateSequence ordinate indexes stored per vertex by delta coordinates
+     */
+    public static int[] getDeltaOrdinates(int dimension) {
+        return checkDimension(dimension) == LEGACY ? LEGACY_DELTA_ORDINATES : ORDINATES[dimension];
+    }
+
+    /**
+     * @return the dimension of the CoordinateSequence holding the ordinates, XYM has a NaN Z ordinate
+     */
+    public static int getSequenceDimension(int dimension) {
+        return SEQUENCE_DIMENSIONS[checkDimension(dimension)];
+    }
+
+    public static int getDeltaSequenceDimension(int dimension) {
+        return checkDimension(dimension) == LEGACY ? LEGACY_DELTA_ORDINATES.length : SEQUENCE_DIMENSIONS[dimension];
+    }
+
+    public static boolean hasZ(int dimension) {
+        return dimension == XYZ || dimension == XYZM;
+    }
+
+    public static boolean hasM(int dimension) {
+        return dimension == XYM || dimension == XYZM;
+    }
+
+    private static int checkDimension(int dimension) {
+        if (dimension < LEGACY || dimension > XYZM) {
+            throw new IllegalArgumentException("Unsupported coordinate dimension " + dimension);
+        }
+        return dimension;
+    }
+}
@@ -0,0 +1,161 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The indexed geometry container written by the indexed Protobuf serialization handlers:
+ * <pre>
+ * magic "TSFV", version,
+ * records: one length delimited Geometry record per serialized geometry,
+ * index: the offset of every record,
+ * spatial index: an optional {@link PackedRTree} of the record envelopes,
+ * trailer: record count, index offset, spatial index offset or 0, magic "TSFV"
+ * </pre>
+ * Numbers are big endian, offsets count from the start of the file. The trailer at the end of the file gives
+ * random access to any record without reading the records before it. Containers with a spatial index hold their
+ * records sorted along a Hilbert curve.
+ */
+public final class IndexedContainer {
+    public static final byte[] MAGIC = "TSFV".getBytes(StandardCharsets.US_ASCII);
+    public static final int VERSION = 1;
+    // magic, version
+    public static final int HEADER_SIZE = 4 + 1;
+    // record count, index offset, spatial index offset, magic
+    public static final int TRAILER_SIZE = 8 + 8 + 8 + 4;
+
+    private final long[] offsets;
+    private final PackedRTree spatialIndex;
+
+    private IndexedContainer(long[] offsets, PackedRTree spatialIndex) {
+        this.offsets = offsets;
+        this.spatialIndex = spatialIndex;
+    }
+
+    public long[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * @return the R-tree of the record envelopes, or null if the container has none
+     */
+    public PackedRTree getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    public static byte[] createHeader() {
+        return ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put((byte) VERSION).array();
+    }
+
+    /**
+     * @param offsets      the record offsets, only the first count are used
+     * @param indexOffset  the offset the index is written at, following the last record
+     * @param spatialIndex the serialized {@link PackedRTree}, or null
+     * @return the index, spatial index and trailer
+     */
+    public static byte[] createFooter(long[] offsets, int count, long indexOffset, byte[] spatialIndex) {
+        int spatialIndexSize = spatialIndex != null ? spatialIndex.length : 0;
+        ByteBuffer footer = ByteBuffer.allocate(8 * count + spatialIndexSize + TRAILER_SIZE);
+        for (int i = 0; i < count; i++) {
+            footer.putLong(offsets[i]);
+        }
+        if (spatialIndex != null) {
+            footer.put(spatialIndex);
+        }
+        footer.putLong(count);
+        footer.putLong(indexOffset);
+        footer.putLong(spatialIndex != null ? indexOffset + 8L * count : 0);
+        footer.put(MAGIC);
+        return footer.array();
+    }
+
+    /**
+     * Checks the header and reads the record offsets of the container, the spatial index is read on demand.
+     */
+    public static IndexedContainer read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + TRAILER_SIZE) {
+            throw new EOFException("Truncated geometry container");
+        }
+        ByteBuffer header = read(channel, 0, HEADER_SIZE);
+        checkMagic(header);
+        int version = header.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported geometry container version " + version);
+        }
+        long trailerOffset = size - TRAILER_SIZE;
+        ByteBuffer trailer = read(channel, trailerOffset, TRAILER_SIZE);
+        long count = trailer.getLong();
+        long indexOffset = trailer.getLong();
+        long spatialIndexOffset = trailer.getLong();
+        checkMagic(trailer);
+        long indexEnd = spatialIndexOffset != 0 ? spatialIndexOffset : trailerOffset;
+        if (indexOffset < HEADER_SIZE || count < 0 || count > Integer.MAX_VALUE / 8
+                || indexOffset + 8 * count != indexEnd || indexEnd > trailerOffset) {
+            throw new IOException("Invalid geometry container index");
+        }
+        ByteBuffer index = read(channel, indexOffset, (int) (8 * count));
+        long[] offsets = new long[(int) count];
+        long previous = HEADER_SIZE;
+        try {
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = index.getLong();
+                if (offsets[i] < previous || offsets[i] >= indexOffset) {
+                    throw new IOException("Invalid offset of record " + i);
+                }
+                previous = offsets[i];
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated geometry container index", e);
+        }
+        PackedRTree spatialIndex = null;
+        if (spatialIndexOffset != 0) {
+            spatialIndex = PackedRTree.read(channel, spatialIndexOffset, trailerOffset, count);
+        }
+        return new IndexedContainer(offsets, spatialIndex);
+    }
+
+    static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of geometry container");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void checkMagic(ByteBuffer buffer) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not an indexed geometry container");
+        }
+    }
+}
@@ -0,0 +1,252 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A packed Hilbert R-tree of the record envelopes of an {@link IndexedContainer}:
+ * <pre>
+ * node size, nodes: min x, min y, max x, max y, reference
+ * </pre>
+ * The nodes are stored level by level from the root down to the leaves, the leaves hold the envelopes of the
+ * records in record order. The reference of a leaf is its record index, the one of an inner node the index of its
+ * first child. Empty envelopes have a positive infinite minimum and a negative infinite maximum and match no query.
+ */
+public final class PackedRTree {
+    // min x, min y, max x, max y, reference
+    static final int NODE_BYTES = 4 * 8 + 8;
+    // bits per axis of the Hilbert values
+    private static final int HILBERT_ORDER = 15;
+
+    private final FileChannel channel;
+    private final long offset;
+    private final int nodeSize;
+    private final long[] levelStarts;
+
+    private PackedRTree(FileChannel channel, long offset, int nodeSize, long[] levelStarts) {
+        this.channel = channel;
+        this.offset = offset;
+        this.nodeSize = nodeSize;
+        this.levelStarts = levelStarts;
+    }
+
+    /**
+     * @return the record indices sorted by the Hilbert value of their envelope centres, empty envelopes last
+     */
+    public static int[] sortByHilbert(double[] boxes, int count) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            if (!isEmpty(boxes, i)) {
+                double x = (boxes[4 * i] + boxes[4 * i + 2]) / 2;
+                double y = (boxes[4 * i + 1] + boxes[4 * i + 3]) / 2;
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+        }
+        int max = (1 << HILBERT_ORDER) - 1;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            long value = 1L << (2 * HILBERT_ORDER);
+            if (!isEmpty(boxes, i)) {
+                double x = (boxes[4 * i] + boxes[4 * i + 2]) / 2;
+                double y = (boxes[4 * i + 1] + boxes[4 * i + 3]) / 2;
+                value = hilbert(scale(x, minX, maxX, max), scale(y, minY, maxY, max));
+            }
+            keys[i] = value << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    /**
+     * @param boxes the min x, min y, max x and max y of every record in record order
+     * @return the serialized tree
+     */
+    public static byte[] create(double[] boxes, int count, int nodeSize) {
+        long[] levelStarts = getLevelStarts(count, nodeSize);
+        int levels = levelStarts.length - 1;
+        long nodeCount = levelStarts[levels];
+        if (4 + nodeCount * NODE_BYTES > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many records to index " + count);
+        }
+        double[] nodes = new double[(int) (4 * nodeCount)];
+        long[] references = new long[(int) nodeCount];
+        int leafStart = (int) levelStarts[levels - 1];
+        System.arraycopy(boxes, 0, nodes, 4 * leafStart, 4 * count);
+        for (int i = 0; i < count; i++) {
+            references[leafStart + i] = i;
+        }
+        for (int level = levels - 2; level >= 0; level--) {
+            int start = (int) levelStarts[level];
+            int childStart = (int) levelStarts[level + 1];
+            int childEnd = (int) levelStarts[level + 2];
+            for (int node = start; node < childStart; node++) {
+                int first = childStart + (node - start) * nodeSize;
+                int last = Math.min(first + nodeSize, childEnd);
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int child = first; child < last; child++) {
+                    if (isEmpty(nodes, child)) {
+                        continue;
+                    }
+                    minX = Math.min(minX, nodes[4 * child]);
+                    minY = Math.min(minY, nodes[4 * child + 1]);
+                    maxX = Math.max(maxX, nodes[4 * child + 2]);
+                    maxY = Math.max(maxY, nodes[4 * child + 3]);
+                }
+                nodes[4 * node] = minX;
+                nodes[4 * node + 1] = minY;
+                nodes[4 * node + 2] = maxX;
+                nodes[4 * node + 3] = maxY;
+                references[node] = first;
+            }
+        }
+        ByteBuffer tree = ByteBuffer.allocate((int) (4 + nodeCount * NODE_BYTES));
+        tree.putInt(nodeSize);
+        for (int node = 0; node < nodeCount; node++) {
+            for (int i = 0; i < 4; i++) {
+                tree.putDouble(nodes[4 * node + i]);
+            }
+            tree.putLong(references[node]);
+        }
+        return tree.array();
+    }
+
+    /**
+     * @param offset the offset of the tree
+     * @param end    the offset following the tree
+     */
+    static PackedRTree read(FileChannel channel, long offset, long end, long recordCount) throws IOException {
+        int nodeSize = IndexedContainer.read(channel, offset, 4).getInt();
+        if (nodeSize < 2 || nodeSize > 65535) {
+            throw new IOException("Invalid index node size " + nodeSize);
+        }
+        long[] levelStarts = getLevelStarts(recordCount, nodeSize);
+        if (offset + 4 + levelStarts[levelStarts.length - 1] * NODE_BYTES != end) {
+            throw new IOException("Invalid spatial index size");
+        }
+        return new PackedRTree(channel, offset + 4, nodeSize, levelStarts);
+    }
+
+    /**
+     * @return the indices of the records whose envelope intersects the box, in ascending order
+     */
+    public long[] search(double minX, double minY, double maxX, double maxY) throws IOException {
+        int leafLevel = levelStarts.length - 2;
+        long[] matches = new long[16];
+        int matchCount = 0;
+        // blocks of sibling nodes still to visit, by their first node and level
+        List<long[]> blocks = new ArrayList<>();
+        blocks.add(new long[]{0, 0});
+        while (!blocks.isEmpty()) {
+            long[] block = blocks.remove(blocks.size() - 1);
+            int level = (int) block[1];
+            long first = block[0];
+            long last = Math.min(first + nodeSize, levelStarts[level + 1]);
+            ByteBuffer nodes = IndexedContainer.read(channel, offset + first * NODE_BYTES,
+                    (int) ((last - first) * NODE_BYTES));
+            for (long node = first; node < last; node++) {
+                boolean intersects = !(nodes.getDouble() > maxX | nodes.getDouble() > maxY
+                        | nodes.getDouble() < minX | nodes.getDouble() < minY);
+                long reference = nodes.getLong();
+                if (!intersects) {
+                    continue;
+                }
+                if (level == leafLevel) {
+                    if (matchCount == matches.length) {
+                        matches = Arrays.copyOf(matches, matchCount * 2);
+                    }
+                    matches[matchCount++] = reference;
+                } else {
+                    blocks.add(new long[]{reference, level + 1});
+                }
+            }
+        }
+        matches = Arrays.copyOf(matches, matchCount);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    /**
+     * @return the index of the first node of every level from the root down, followed by the node count
+     */
+    static long[] getLevelStarts(long recordCount, int nodeSize) {
+        List<Long> levelSizes = new ArrayList<>();
+        long size = recordCount;
+        do {
+            levelSizes.add(size);
+            size = (size + nodeSize - 1) / nodeSize;
+        } while (levelSizes.get(levelSizes.size() - 1) > 1);
+        long[] levelStarts = new long[levelSizes.size() + 1];
+        for (int level = 1; level < levelStarts.length; level++) {
+            levelStarts[level] = levelStarts[level - 1] + levelSizes.get(levelSizes.size() - level);
+        }
+        return levelStarts;
+    }
+
+    /**
+     * Maps a position on a 2^HILBERT_ORDER grid to its distance along the Hilbert curve.
+     */
+    static long hilbert(int x, int y) {
+        int n = 1 << HILBERT_ORDER;
+        long distance = 0;
+        for (int s = n / 2; s > 0; s /= 2) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            distance += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return distance;
+    }
+
+    private static int scale(double value, double min, double max, int cells) {
+        return max > min ? (int) ((value - min) / (max - min) * cells) : 0;
+    }
+
+    private static boolean isEmpty(double[] boxes, int i) {
+        return !(boxes[4 * i] <= boxes[4 * i + 2]);
+    }
+}
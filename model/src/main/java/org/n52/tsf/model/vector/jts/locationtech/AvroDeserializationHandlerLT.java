@@ -24,14 +24,15 @@ import org.apache.avro.io.DatumReader;
 import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.log4j.Logger;
 import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
 import org.n52.tsf.model.DeserializationHandler;
 import org.n52.tsf.model.DeserializerType;
+import org.n52.tsf.model.vector.CoordinateDimension;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * This class provides the  Avro to JTS deserialization functionality.
@@ -40,55 +41,94 @@ public class AvroDeserializationHandlerLT extends DeserializationHandler {
     private final static Logger logger = Logger.getLogger(AvroDeserializationHandlerLT.class);
     private GeometryFactory geometryFactory;
     private DataFileStream<org.n52.tsf.serialization.avro.gen.vector.Geometry> dataFileReader;
+    private double scale;
+    // the record of the previous datum, its arrays and coordinate records are reused by the next read
+    private org.n52.tsf.serialization.avro.gen.vector.Geometry reuse;
+    private Envelope filter;
 
     public AvroDeserializationHandlerLT(InputStream inputStream) throws IOException {
-        super(DeserializerType.AVRO_DESERIALIZER_VS);
+        super(DeserializerType.AVRO_DESERIALIZER_LT);
         DatumReader<org.n52.tsf.serialization.avro.gen.vector.Geometry> datumReader =
                 new SpecificDatumReader<>(org.n52.tsf.serialization.avro.gen.vector.Geometry.class);
         dataFileReader = new DataFileStream<>(inputStream, datumReader);
-        this.geometryFactory = new GeometryFactory();
+        String scaleMeta = dataFileReader.getMetaString(AvroSerializationHandlerLT.PRECISION_SCALE_META);
+        scale = scaleMeta == null ? 0 : Double.parseDouble(scaleMeta);
+        this.geometryFactory = new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
     }
 
-    public Object deserialize() {
-        org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry;
-        Object jtsGeometry = null;
-        if (dataFileReader.hasNext()) {
-            avroGeometry = dataFileReader.next();
-            switch (avroGeometry.getType()) {
-                case POINT:
-                    jtsGeometry = deserializePoint(avroGeometry);
-                    break;
-                case LINESTRING:
-                    jtsGeometry = deserializeLineString(avroGeometry);
-                    break;
-                case POLYGON:
-                    jtsGeometry = deserializePolygon(avroGeometry);
-                    break;
-                case MULTIPOINT:
-                    jtsGeometry = deserializeMultiPoint(avroGeometry);
-                    break;
-                case MULTILINESTRING:
-                    jtsGeometry = deserializeMultiLineString(avroGeometry);
-                    break;
-                case LINEARRING:
-                    jtsGeometry = deserializeLinearRing(avroGeometry);
-                    break;
-                case MULTIPOLYGON:
-                    jtsGeometry = deserializeMultiPolygon(avroGeometry);
-                    break;
-                case GEOMETRYCOLLECTION:
-                    jtsGeometry = deserializeGeoCollection(avroGeometry);
-                    break;
-                case TRIANGLE:
-                    jtsGeometry = deserializeTriangle(avroGeometry);
-                    break;
-                case LINE:
-                    jtsGeometry = deserializeLine(avroGeometry);
-                    break;
-                default:
-                    logger.error("Unsupported Geometric type for Avro deserialization");
+    public Envelope getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns only the geometries intersecting the envelope from {@link #deserialize()}, records written with
+     * {@link org.n52.tsf.model.SerializationOptions#setRecordEnvelopes(boolean)} are rejected by their envelope
+     * without building the JTS geometry.
+     *
+     * @param filter the filter envelope, or null to read all geometries
+     */
+    public void setFilter(Envelope filter) {
+        this.filter = filter;
+    }
+
+    public Object deserialize() throws IOException {
+        while (dataFileReader.hasNext()) {
+            org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry = dataFileReader.next(reuse);
+            reuse = avroGeometry;
+            org.n52.tsf.serialization.avro.gen.vector.Envelope avroEnvelope = avroGeometry.getEnvelope();
+            if (filter == null) {
+                return createGeometry(avroGeometry);
+            } else if (avroEnvelope != null) {
+                if (filter.intersects(new Envelope(avroEnvelope.getMinX(), avroEnvelope.getMaxX(),
+                        avroEnvelope.getMinY(), avroEnvelope.getMaxY()))) {
+                    return createGeometry(avroGeometry);
+                }
+            } else {
+                Object jtsGeometry = createGeometry(avroGeometry);
+                if (filter.intersects(GeometryEnvelopesLT.getEnvelope(jtsGeometry))) {
+                    return jtsGeometry;
+                }
             }
         }
+        return null;
+    }
+
+    private Object createGeometry(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
+        Object jtsGeometry = null;
+        switch (avroGeometry.getType()) {
+            case POINT:
+                jtsGeometry = deserializePoint(avroGeometry);
+                break;
+            case LINESTRING:
+                jtsGeometry = deserializeLineString(avroGeometry);
+                break;
+            case POLYGON:
+                jtsGeometry = deserializePolygon(avroGeometry);
+                break;
+            case MULTIPOINT:
+                jtsGeometry = deserializeMultiPoint(avroGeometry);
+                break;
+            case MULTILINESTRING:
+                jtsGeometry = deserializeMultiLineString(avroGeometry);
+                break;
+            case LINEARRING:
+                jtsGeometry = deserializeLinearRing(avroGeometry);
+                break;
+            case MULTIPOLYGON:
+                jtsGeometry = deserializeMultiPolygon(avroGeometry);
+                break;
+            case GEOMETRYCOLLECTION:
+                jtsGeometry = deserializeGeoCollection(avroGeometry);
+                break;
+            case TRIANGLE:
+                jtsGeometry = deserializeTriangle(avroGeometry);
+                break;
+            case LINE:
+                jtsGeometry = deserializeLine(avroGeometry);
+                break;
+            default:
+                logger.error("Unsupported Geometric type for Avro deserialization");
+        }
         return jtsGeometry;
     }
 
@@ -97,42 +137,84 @@ public class AvroDeserializationHandlerLT extends DeserializationHandler {
     }
 
     private Point deserializePoint(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
-        List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> coordinates = avroGeometry.getCoordinates();
-        Coordinate jtsCoordinate = createJtsCoordinate(coordinates.get(0));
-        Point point = geometryFactory.createPoint(jtsCoordinate);
+        Point point = geometryFactory.createPoint(createJtsCoordinateSequence(avroGeometry));
         return point;
     }
 
     public LineSegment deserializeLine(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
-        Coordinate[] jtsCoordinates = avroGeometry.getCoordinates().
-                stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-        LineSegment lineSegment = new LineSegment(jtsCoordinates[0], jtsCoordinates[1]);
+        CoordinateSequence sequence = createJtsCoordinateSequence(avroGeometry);
+        LineSegment lineSegment = new LineSegment(sequence.getCoordinate(0), sequence.getCoordinate(1));
         return lineSegment;
     }
 
     public Triangle deserializeTriangle(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
-        Coordinate[] jtsCoordinates = avroGeometry.getCoordinates().
-                stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-        Triangle triangle = new Triangle(jtsCoordinates[0], jtsCoordinates[1], jtsCoordinates[2]);
+        CoordinateSequence sequence = createJtsCoordinateSequence(avroGeometry);
+        Triangle triangle = new Triangle(sequence.getCoordinate(0), sequence.getCoordinate(1), sequence.getCoordinate(2));
         return triangle;
     }
 
-    private Coordinate createJtsCoordinate(org.n52.tsf.serialization.avro.gen.vector.Coordinate avroCoordinate) {
-        Coordinate jtsCoordinate = new Coordinate(avroCoordinate.getX(), avroCoordinate.getY());
-        return jtsCoordinate;
+    private CoordinateSequence createJtsCoordinateSequence(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
+        int dimension = avroGeometry.getDimension().ordinal();
+        List<Long> deltaCoordinates = avroGeometry.getDeltaCoordinates();
+        if (deltaCoordinates.size() > 0) {
+            int[] ordinates = CoordinateDimension.getDeltaOrdinates(dimension);
+            int size = deltaCoordinates.size() / ordinates.length;
+            CoordinateSequence sequence = createSequence(size, CoordinateDimension.getDeltaSequenceDimension(dimension), ordinates);
+            for (int j = 0; j < ordinates.length; j++) {
+                long value = 0;
+                for (int i = 0; i < size; i++) {
+                    value += deltaCoordinates.get(i * ordinates.length + j);
+                    sequence.setOrdinate(i, ordinates[j], value / scale);
+                }
+            }
+            return sequence;
+        } else {
+            List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> coordinates = avroGeometry.getCoordinates();
+            int[] ordinates = CoordinateDimension.getOrdinates(dimension);
+            CoordinateSequence sequence = createSequence(coordinates.size(), CoordinateDimension.getSequenceDimension(dimension), ordinates);
+            for (int i = 0; i < coordinates.size(); i++) {
+                org.n52.tsf.serialization.avro.gen.vector.Coordinate avroCoordinate = coordinates.get(i);
+                for (int ordinate : ordinates) {
+                    sequence.setOrdinate(i, ordinate, getOrdinate(avroCoordinate, ordinate));
+                }
+            }
+            return sequence;
+        }
+    }
+
+    private CoordinateSequence createSequence(int size, int sequenceDimension, int[] ordinates) {
+        CoordinateSequence sequence = geometryFactory.getCoordinateSequenceFactory().create(size, sequenceDimension);
+        if (sequenceDimension > ordinates.length) {
+            for (int i = 0; i < size; i++) {
+                sequence.setOrdinate(i, CoordinateSequence.Z, Coordinate.NULL_ORDINATE);
+            }
+        }
+        return sequence;
+    }
+
+    private static double getOrdinate(org.n52.tsf.serialization.avro.gen.vector.Coordinate avroCoordinate, int ordinate) {
+        Double value;
+        switch (ordinate) {
+            case CoordinateSequence.X:
+                return avroCoordinate.getX();
+            case CoordinateSequence.Y:
+                return avroCoordinate.getY();
+            case CoordinateSequence.Z:
+                value = avroCoordinate.getZ();
+                break;
+            default:
+                value = avroCoordinate.getM();
+        }
+        return value == null ? Coordinate.NULL_ORDINATE : value;
     }
 
     private LineString deserializeLineString(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
-        Coordinate[] jtsCoordinates = avroGeometry.getCoordinates().
-                stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-        LineString lineString = geometryFactory.createLineString(jtsCoordinates);
+        LineString lineString = geometryFactory.createLineString(createJtsCoordinateSequence(avroGeometry));
         return lineString;
     }
 
     private LinearRing deserializeLinearRing(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
-        Coordinate[] jtsCoordinates = avroGeometry.getCoordinates().
-                stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-        LinearRing linearRing = geometryFactory.createLinearRing(jtsCoordinates);
+        LinearRing linearRing = geometryFactory.createLinearRing(createJtsCoordinateSequence(avroGeometry));
         return linearRing;
     }
 
@@ -140,21 +222,14 @@ public class AvroDeserializationHandlerLT extends DeserializationHandler {
         List<org.n52.tsf.serialization.avro.gen.vector.Geometry> geometries = avroGeometry.getGeometries();
         Polygon polygon;
         if (geometries.size() == 0) {
-            Coordinate[] jtsCoordinates = avroGeometry.getCoordinates().
-                    stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-            polygon = geometryFactory.createPolygon(jtsCoordinates);
+            polygon = geometryFactory.createPolygon(createJtsCoordinateSequence(avroGeometry));
 
         } else {
-            Coordinate[] exCoordinates = avroGeometry.getCoordinates().
-                    stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-
-            LinearRing exteriorLR = geometryFactory.createLinearRing(exCoordinates);
+            LinearRing exteriorLR = geometryFactory.createLinearRing(createJtsCoordinateSequence(avroGeometry));
 
             List<LinearRing> jtsInteriorLRs = new ArrayList();
             for (org.n52.tsf.serialization.avro.gen.vector.Geometry geo : geometries) {
-                Coordinate[] inCoordinates = geo.getCoordinates().
-                        stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-                jtsInteriorLRs.add(geometryFactory.createLinearRing(inCoordinates));
+                jtsInteriorLRs.add(geometryFactory.createLinearRing(createJtsCoordinateSequence(geo)));
             }
             polygon = geometryFactory.createPolygon(exteriorLR, jtsInteriorLRs.stream().toArray(LinearRing[]::new));
         }
@@ -162,30 +237,42 @@ public class AvroDeserializationHandlerLT extends DeserializationHandler {
     }
 
     private MultiPolygon deserializeMultiPolygon(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
-        Polygon[] jtsPolygons = avroGeometry.getGeometries().
-                stream().map(this::deserializePolygon).collect(Collectors.toList()).stream().toArray(Polygon[]::new);
+        List<org.n52.tsf.serialization.avro.gen.vector.Geometry> geometries = avroGeometry.getGeometries();
+        Polygon[] jtsPolygons = new Polygon[geometries.size()];
+        for (int i = 0; i < jtsPolygons.length; i++) {
+            jtsPolygons[i] = deserializePolygon(geometries.get(i));
+        }
         MultiPolygon multiPolygon = geometryFactory.createMultiPolygon(jtsPolygons);
         return multiPolygon;
     }
 
     private MultiPoint deserializeMultiPoint(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
-        Point[] jtsPoints = avroGeometry.getGeometries().
-                stream().map(this::deserializePoint).collect(Collectors.toList()).stream().toArray(Point[]::new);
+        List<org.n52.tsf.serialization.avro.gen.vector.Geometry> geometries = avroGeometry.getGeometries();
+        Point[] jtsPoints = new Point[geometries.size()];
+        for (int i = 0; i < jtsPoints.length; i++) {
+            jtsPoints[i] = deserializePoint(geometries.get(i));
+        }
         MultiPoint multiPoint = geometryFactory.createMultiPoint(jtsPoints);
         return multiPoint;
     }
 
     private MultiLineString deserializeMultiLineString(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
-        LineString[] jtsLineStrings = avroGeometry.getGeometries().
-                stream().map(this::deserializeLineString).collect(Collectors.toList()).stream().toArray(LineString[]::new);
+        List<org.n52.tsf.serialization.avro.gen.vector.Geometry> geometries = avroGeometry.getGeometries();
+        LineString[] jtsLineStrings = new LineString[geometries.size()];
+        for (int i = 0; i < jtsLineStrings.length; i++) {
+            jtsLineStrings[i] = deserializeLineString(geometries.get(i));
+        }
         MultiLineString multiLineString = geometryFactory.createMultiLineString(jtsLineStrings);
         return multiLineString;
     }
 
 
     private GeometryCollection deserializeGeoCollection(org.n52.tsf.serialization.avro.gen.vector.Geometry avroGeometry) {
-        Geometry[] jtsGeometries = avroGeometry.getGeometries().
-                stream().map(this::deserializeGeometry).collect(Collectors.toList()).stream().toArray(Geometry[]::new);
+        List<org.n52.tsf.serialization.avro.gen.vector.Geometry> geometries = avroGeometry.getGeometries();
+        Geometry[] jtsGeometries = new Geometry[geometries.size()];
+        for (int i = 0; i < jtsGeometries.length; i++) {
+            jtsGeometries[i] = deserializeGeometry(geometries.get(i));
+        }
         return geometryFactory.createGeometryCollection(jtsGeometries);
     }
 
@@ -205,6 +292,8 @@ public class AvroDeserializationHandlerLT extends DeserializationHandler {
                 return deserializeLinearRing(avroGeometry);
             case MULTIPOLYGON:
                 return deserializeMultiPolygon(avroGeometry);
+            case GEOMETRYCOLLECTION:
+                return deserializeGeoCollection(avroGeometry);
             default:
                 logger.error("Unsupported Geometric type for Avro deserialization");
                 return null;
@@ -24,16 +24,17 @@ import org.apache.avro.io.DatumWriter;
 import org.apache.avro.specific.SpecificDatumWriter;
 import org.apache.log4j.Logger;
 import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.impl.CoordinateArraySequence;
 import org.n52.tsf.model.SerializationHandler;
+import org.n52.tsf.model.SerializationOptions;
 import org.n52.tsf.model.SerializerType;
+import org.n52.tsf.model.vector.CoordinateDimension;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import static java.lang.Double.NaN;
-
 /**
  * This class provides the JTS to avro Serialization functionality.
  */
@@ -42,12 +43,23 @@ import static java.lang.Double.NaN;
  */
 public class AvroSerializationHandlerLT extends SerializationHandler {
     final static Logger logger = Logger.getLogger(AvroSerializationHandlerLT.class);
+    public static final String PRECISION_SCALE_META = "tsf.precision.scale";
     private DataFileWriter<org.n52.tsf.serialization.avro.gen.vector.Geometry> dataFileWriter;
+    private SerializationOptions options;
 
     public AvroSerializationHandlerLT(OutputStream outputStream) throws IOException {
+        this(outputStream, new SerializationOptions());
+    }
+
+    public AvroSerializationHandlerLT(OutputStream outputStream, SerializationOptions options) throws IOException {
         super(SerializerType.AVRO_SERIALIZER_LT);
+        this.options = options;
         DatumWriter<org.n52.tsf.serialization.avro.gen.vector.Geometry> datumWriter = new SpecificDatumWriter<>(org.n52.tsf.serialization.avro.gen.vector.Geometry.class);
         dataFileWriter = new DataFileWriter<>(datumWriter);
+        options.configure(dataFileWriter);
+        if (options.isFixedPrecision()) {
+            dataFileWriter.setMeta(PRECISION_SCALE_META, Double.toString(options.getPrecisionScale()));
+        }
         dataFileWriter.create(org.n52.tsf.serialization.avro.gen.vector.Geometry.getClassSchema(), outputStream);
     }
 
@@ -76,6 +88,13 @@ public class AvroSerializationHandlerLT extends SerializationHandler {
         } else {
             throw new IllegalArgumentException("Unsupported Geometric type for Avro Serialization");
         }
+        if (options.isRecordEnvelopes()) {
+            Envelope envelope = GeometryEnvelopesLT.getEnvelope(jtsGeometry);
+            if (!envelope.isNull()) {
+                avroGeometry.setEnvelope(new org.n52.tsf.serialization.avro.gen.vector.Envelope(envelope.getMinX(),
+                        envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY()));
+            }
+        }
         dataFileWriter.append(avroGeometry);
     }
 
@@ -84,24 +103,18 @@ public class AvroSerializationHandlerLT extends SerializationHandler {
     }
 
     private org.n52.tsf.serialization.avro.gen.vector.Geometry serializePoint(Point jtsPoint) {
-        if (jtsPoint.getCoordinates().length == 0) {
+        if (jtsPoint.isEmpty()) {
             throw new IllegalArgumentException("No Coordinate data available");
         } else {
-            List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> coordinateList = new ArrayList<>();
-            coordinateList.add(createCoordinate(jtsPoint.getCoordinate()));
-            return createGeometry(coordinateList, null, org.n52.tsf.serialization.avro.gen.vector.Type.POINT);
+            return createGeometry(jtsPoint.getCoordinateSequence(), null, org.n52.tsf.serialization.avro.gen.vector.Type.POINT);
         }
     }
 
     private org.n52.tsf.serialization.avro.gen.vector.Geometry serializeLineString(LineString jtsLineString) {
-        if (jtsLineString.getCoordinates().length < 2) {
+        if (jtsLineString.getNumPoints() < 2) {
             throw new IllegalArgumentException("Insufficient Coordinates");
         } else {
-            List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> coordinateList = new ArrayList<>();
-            for (Coordinate coord : jtsLineString.getCoordinates()) {
-                coordinateList.add(createCoordinate(coord));
-            }
-            return createGeometry(coordinateList, null, org.n52.tsf.serialization.avro.gen.vector.Type.LINESTRING);
+            return createGeometry(jtsLineString.getCoordinateSequence(), null, org.n52.tsf.serialization.avro.gen.vector.Type.LINESTRING);
         }
     }
 
@@ -122,14 +135,10 @@ public class AvroSerializationHandlerLT extends SerializationHandler {
     }
 
     private org.n52.tsf.serialization.avro.gen.vector.Geometry serializeLinearRing(LineString jtsLinearRing) throws IOException {
-        if (jtsLinearRing.getCoordinates().length < 2) {
+        if (jtsLinearRing.getNumPoints() < 2) {
             throw new IllegalArgumentException("Insufficient Coordinates");
         } else {
-            List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> coordinateList = new ArrayList<>();
-            for (Coordinate coord : jtsLinearRing.getCoordinates()) {
-                coordinateList.add(createCoordinate(coord));
-            }
-            return createGeometry(coordinateList, null, org.n52.tsf.serialization.avro.gen.vector.Type.LINEARRING);
+            return createGeometry(jtsLinearRing.getCoordinateSequence(), null, org.n52.tsf.serialization.avro.gen.vector.Type.LINEARRING);
         }
     }
 
@@ -145,22 +154,14 @@ public class AvroSerializationHandlerLT extends SerializationHandler {
         LineString externalLS = jtsPolygon.getExteriorRing();
         int noOfInteriorRings = jtsPolygon.getNumInteriorRing();
 
-        List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> exCoordinateList = new ArrayList<>();
-        for (Coordinate coord : externalLS.getCoordinates()) {
-            exCoordinateList.add(createCoordinate(coord));
-        }
         List<org.n52.tsf.serialization.avro.gen.vector.Geometry> interiorGeos = new ArrayList<>();
         if (noOfInteriorRings > 0) {
             for (int i = 0; i < noOfInteriorRings; i++) {
                 LineString interiorLS = jtsPolygon.getInteriorRingN(i);
-                List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> inCoordinateList = new ArrayList<>();
-                for (Coordinate coord : interiorLS.getCoordinates()) {
-                    inCoordinateList.add(createCoordinate(coord));
-                }
-                interiorGeos.add(createGeometry(inCoordinateList, null, org.n52.tsf.serialization.avro.gen.vector.Type.LINEARRING));
+                interiorGeos.add(createGeometry(interiorLS.getCoordinateSequence(), null, org.n52.tsf.serialization.avro.gen.vector.Type.LINEARRING));
             }
         }
-        return createGeometry(exCoordinateList, interiorGeos, org.n52.tsf.serialization.avro.gen.vector.Type.POLYGON);
+        return createGeometry(externalLS.getCoordinateSequence(), interiorGeos, org.n52.tsf.serialization.avro.gen.vector.Type.POLYGON);
     }
 
     private org.n52.tsf.serialization.avro.gen.vector.Geometry serializeLine(LineSegment jtsLineSegment) throws IOException {
@@ -169,10 +170,7 @@ public class AvroSerializationHandlerLT extends SerializationHandler {
         if (p0 == null || p1 == null) {
             throw new IllegalArgumentException("Insufficient Coordinates");
         } else {
-            List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> coordinateList = new ArrayList<>();
-            coordinateList.add(createCoordinate(p0));
-            coordinateList.add(createCoordinate(p1));
-            return createGeometry(coordinateList, null, org.n52.tsf.serialization.avro.gen.vector.Type.LINE);
+            return createGeometry(new CoordinateArraySequence(new Coordinate[]{p0, p1}), null, org.n52.tsf.serialization.avro.gen.vector.Type.LINE);
         }
     }
 
@@ -183,33 +181,69 @@ public class AvroSerializationHandlerLT extends SerializationHandler {
         if (p0 == null || p1 == null || p2 == null) {
             throw new IllegalArgumentException("Insufficient Coordinates");
         } else {
-            List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> coordinateList = new ArrayList<>();
-            coordinateList.add(createCoordinate(p0));
-            coordinateList.add(createCoordinate(p1));
-            coordinateList.add(createCoordinate(p2));
-            return createGeometry(coordinateList, null, org.n52.tsf.serialization.avro.gen.vector.Type.TRIANGLE);
+            return createGeometry(new CoordinateArraySequence(new Coordinate[]{p0, p1, p2}), null, org.n52.tsf.serialization.avro.gen.vector.Type.TRIANGLE);
         }
     }
 
-    private org.n52.tsf.serialization.avro.gen.vector.Coordinate createCoordinate(Coordinate jtsCoordinate) {
+    private org.n52.tsf.serialization.avro.gen.vector.Coordinate createCoordinate(CoordinateSequence sequence, int index, int dimension) {
         org.n52.tsf.serialization.avro.gen.vector.Coordinate.Builder coordinate = org.n52.tsf.serialization.avro.gen.vector.Coordinate.newBuilder();
-        coordinate.setX(jtsCoordinate.x);
-        coordinate.setY(jtsCoordinate.y);
-        coordinate.setZ(NaN);
+        coordinate.setX(sequence.getX(index));
+        coordinate.setY(sequence.getY(index));
+        if (CoordinateDimension.hasZ(dimension)) {
+            coordinate.setZ(sequence.getOrdinate(index, CoordinateSequence.Z));
+        }
+        if (CoordinateDimension.hasM(dimension)) {
+            coordinate.setM(sequence.getOrdinate(index, CoordinateSequence.M));
+        }
         return coordinate.build();
     }
 
-    private org.n52.tsf.serialization.avro.gen.vector.Geometry createGeometry(List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> coordinates,
+    /**
+     * Returns the CoordinateDimension of the ordinates present in the sequence. Z and M are only written when at
+     * least one vertex has a value for them.
+     */
+    private static int getDimension(CoordinateSequence sequence) {
+        boolean hasZ = false;
+        boolean hasM = false;
+        for (int i = 0; i < sequence.size(); i++) {
+            hasZ |= sequence.getDimension() > 2 && !Double.isNaN(sequence.getOrdinate(i, CoordinateSequence.Z));
+            hasM |= sequence.getDimension() > 3 && !Double.isNaN(sequence.getOrdinate(i, CoordinateSequence.M));
+        }
+        return CoordinateDimension.valueOf(hasZ, hasM);
+    }
+
+    private org.n52.tsf.serialization.avro.gen.vector.Geometry createGeometry(CoordinateSequence sequence,
                                                                               List<org.n52.tsf.serialization.avro.gen.vector.Geometry> geometries,
                                                                               org.n52.tsf.serialization.avro.gen.vector.Type type) {
         org.n52.tsf.serialization.avro.gen.vector.Geometry.Builder geometry = org.n52.tsf.serialization.avro.gen.
                 vector.Geometry.newBuilder();
-        if (coordinates == null) {
-            List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> coordinateList = new ArrayList<>();
-            geometry.setCoordinates(coordinateList);
-        } else {
-            geometry.setCoordinates(coordinates);
+        int size = sequence == null ? 0 : sequence.size();
+        List<org.n52.tsf.serialization.avro.gen.vector.Coordinate> coordinateList = new ArrayList<>();
+        List<Long> deltaCoordinateList = new ArrayList<>();
+        if (sequence != null) {
+            int dimension = getDimension(sequence);
+            geometry.setDimension(org.n52.tsf.serialization.avro.gen.vector.Dimension.values()[dimension]);
+            if (size > 0 && options.isFixedPrecision()) {
+                double scale = options.getPrecisionScale();
+                int[] ordinates = CoordinateDimension.getDeltaOrdinates(dimension);
+                long[] lastOrdinates = new long[ordinates.length];
+                deltaCoordinateList = new ArrayList<>(ordinates.length * size);
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < ordinates.length; j++) {
+                        long value = Math.round(sequence.getOrdinate(i, ordinates[j]) * scale);
+                        deltaCoordinateList.add(value - lastOrdinates[j]);
+                        lastOrdinates[j] = value;
+                    }
+                }
+            } else if (size > 0) {
+                coordinateList = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    coordinateList.add(createCoordinate(sequence, i, dimension));
+                }
+            }
         }
+        geometry.setCoordinates(coordinateList);
+        geometry.setDeltaCoordinates(deltaCoordinateList);
         if (geometries == null) {
             List<org.n52.tsf.serialization.avro.gen.vector.Geometry> geometryList = new ArrayList<>();
             geometry.setGeometries(geometryList);
@@ -239,6 +273,8 @@ public class AvroSerializationHandlerLT extends SerializationHandler {
                 geometries.add(serializeMultiLineString((MultiLineString) jtsGeometry));
             }else if (jtsGeometry instanceof MultiPolygon) {
                 geometries.add(serializeMultiPolygon((MultiPolygon) jtsGeometry));
+            } else if (jtsGeometry instanceof GeometryCollection) {
+                geometries.add(serializeGeometryCollection((GeometryCollection) jtsGeometry));
             } else {
                 throw new IllegalArgumentException("Unsupported Geometric type for Avro Serialization");
             }
@@ -0,0 +1,53 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.locationtech;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineSegment;
+import org.locationtech.jts.geom.Triangle;
+
+/**
+ * Envelopes of the objects handled by the serializers, which besides geometries include LineSegments and Triangles.
+ */
+final class GeometryEnvelopesLT {
+
+    private GeometryEnvelopesLT() {
+    }
+
+    /**
+     * @return the envelope of the geometry, LineSegment or Triangle, a null envelope for other objects
+     */
+    static Envelope getEnvelope(Object jtsGeometry) {
+        if (jtsGeometry instanceof LineSegment) {
+            LineSegment lineSegment = (LineSegment) jtsGeometry;
+            return new Envelope(lineSegment.p0, lineSegment.p1);
+        } else if (jtsGeometry instanceof Triangle) {
+            Triangle triangle = (Triangle) jtsGeometry;
+            Envelope envelope = new Envelope(triangle.p0, triangle.p1);
+            envelope.expandToInclude(triangle.p2);
+            return envelope;
+        } else if (jtsGeometry instanceof Geometry) {
+            return ((Geometry) jtsGeometry).getEnvelopeInternal();
+        }
+        return new Envelope();
+    }
+}
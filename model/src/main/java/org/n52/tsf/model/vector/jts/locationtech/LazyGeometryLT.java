@@ -0,0 +1,85 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.locationtech;
+
+import org.locationtech.jts.geom.Envelope;
+import org.n52.tsf.serialization.protobuf.gen.GeoProtobuf;
+
+import java.io.IOException;
+
+/**
+ * A geometry record read by the lazy Protobuf deserializer. It holds the encoded record with its type and
+ * envelope, the JTS geometry is decoded on the first call of {@link #getGeometry()}. The geometry is decoded by the
+ * reader of the deserializer, so it should be requested from the thread reading the records.
+ */
+public class LazyGeometryLT {
+    private final PBGeometryReaderLT geometryReader;
+    private final byte[] bytes;
+    private final int type;
+    private Envelope envelope;
+    private Object geometry;
+
+    LazyGeometryLT(PBGeometryReaderLT geometryReader, byte[] bytes, int type, Envelope envelope) {
+        this.geometryReader = geometryReader;
+        this.bytes = bytes;
+        this.type = type;
+        this.envelope = envelope;
+    }
+
+    /**
+     * @return the geometry type of the record, or null if the type is unknown to this version of the schema
+     */
+    public GeoProtobuf.Geometry.Type getType() {
+        return GeoProtobuf.Geometry.Type.forNumber(type);
+    }
+
+    /**
+     * @return the envelope written with the record, or the envelope of the decoded geometry if the record was
+     * written without one
+     */
+    public Envelope getEnvelope() throws IOException {
+        if (envelope == null) {
+            envelope = GeometryEnvelopesLT.getEnvelope(getGeometry());
+        }
+        return envelope;
+    }
+
+    /**
+     * @return the encoded record, without its length prefix
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public boolean isDecoded() {
+        return geometry != null;
+    }
+
+    /**
+     * @return the JTS geometry, LineSegment or Triangle of the record
+     */
+    public Object getGeometry() throws IOException {
+        if (geometry == null) {
+            geometry = geometryReader.readRecord(bytes);
+        }
+        return geometry;
+    }
+}
@@ -0,0 +1,144 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.locationtech;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A read-only CoordinateSequence viewing the packed little endian ordinates of a GeoProtobuf record in a
+ * ByteBuffer, usually a mapped file. Ordinates are read from the buffer on every access, so the coordinates are
+ * never copied onto the heap unless {@link #toCoordinateArray()} or {@link #copy()} is called.
+ */
+public class MappedCoordinateSequenceLT implements CoordinateSequence {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int size;
+    private final int dimension;
+    // the position of each sequence ordinate among the ordinates stored per vertex, -1 if it is not stored
+    private final int[] positions;
+    private final int stride;
+
+    /**
+     * @param buffer    the buffer holding the ordinates, its position, limit and byte order are ignored
+     * @param offset    the buffer index of the first ordinate
+     * @param dimension the dimension of the sequence
+     * @param stored    the sequence ordinate indexes stored per vertex, in the order they are stored
+     */
+    public MappedCoordinateSequenceLT(ByteBuffer buffer, int offset, int size, int dimension, int[] stored) {
+        if (offset < 0 || offset + (long) size * stored.length * 8 > buffer.capacity()) {
+            throw new IndexOutOfBoundsException("Ordinates exceed the buffer");
+        }
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.offset = offset;
+        this.size = size;
+        this.dimension = dimension;
+        positions = new int[dimension];
+        Arrays.fill(positions, -1);
+        for (int j = 0; j < stored.length; j++) {
+            positions[stored[j]] = j;
+        }
+        stride = stored.length * 8;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public Coordinate getCoordinate(int i) {
+        return getCoordinateCopy(i);
+    }
+
+    public Coordinate getCoordinateCopy(int i) {
+        return new Coordinate(getX(i), getY(i), getOrdinate(i, Z));
+    }
+
+    public void getCoordinate(int i, Coordinate coordinate) {
+        coordinate.x = getX(i);
+        coordinate.y = getY(i);
+        coordinate.z = getOrdinate(i, Z);
+    }
+
+    public double getX(int i) {
+        return getOrdinate(i, X);
+    }
+
+    public double getY(int i) {
+        return getOrdinate(i, Y);
+    }
+
+    public double getOrdinate(int i, int ordinate) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Coordinate " + i + " of " + size);
+        }
+        int position = ordinate < dimension ? positions[ordinate] : -1;
+        return position < 0 ? Double.NaN : buffer.getDouble(offset + i * stride + position * 8);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void setOrdinate(int i, int ordinate, double value) {
+        throw new UnsupportedOperationException("Mapped coordinate sequences are read-only");
+    }
+
+    public Coordinate[] toCoordinateArray() {
+        Coordinate[] coordinates = new Coordinate[size];
+        for (int i = 0; i < size; i++) {
+            coordinates[i] = getCoordinateCopy(i);
+        }
+        return coordinates;
+    }
+
+    public Envelope expandEnvelope(Envelope envelope) {
+        for (int i = 0; i < size; i++) {
+            envelope.expandToInclude(getX(i), getY(i));
+        }
+        return envelope;
+    }
+
+    /**
+     * @return a heap copy of the ordinates
+     */
+    @Override
+    public CoordinateSequence copy() {
+        double[] coords = new double[size * dimension];
+        for (int i = 0; i < size; i++) {
+            for (int ordinate = 0; ordinate < dimension; ordinate++) {
+                coords[i * dimension + ordinate] = getOrdinate(i, ordinate);
+            }
+        }
+        return new PackedCoordinateSequence.Double(coords, dimension);
+    }
+
+    @Override
+    @Deprecated
+    public Object clone() {
+        return copy();
+    }
+}
@@ -19,191 +19,64 @@
 
 package org.n52.tsf.model.vector.jts.locationtech;
 
-import org.apache.log4j.Logger;
-import org.locationtech.jts.geom.*;
+import com.google.protobuf.CodedInputStream;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
 import org.n52.tsf.model.DeserializationHandler;
 import org.n52.tsf.model.DeserializerType;
-import org.n52.tsf.serialization.protobuf.gen.GeoProtobuf;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * This class provides the JTS to ProtoBuf Deserialization functionality.
  */
 public class PBDeserializationHandlerLT extends DeserializationHandler {
-    private final static Logger logger = Logger.getLogger(PBDeserializationHandlerLT.class);
-    private GeometryFactory geometryFactory;
     private InputStream inputStream;
-
+    private CodedInputStream codedInput;
+    private PBGeometryReaderLT geometryReader;
+    private boolean lazy;
 
     public PBDeserializationHandlerLT(InputStream inputStream) {
-        super(DeserializerType.PROTOBUF_DESERIALIZER_VS);
-        this.geometryFactory = new GeometryFactory();
-        this.inputStream = inputStream;
-
-    }
-
-    public Object deserialize() throws IOException {
-        GeoProtobuf.Geometry pbGeometry = GeoProtobuf.Geometry.parseDelimitedFrom(inputStream);
-        Object jtsGeometry = null;
-        switch (pbGeometry.getType()) {
-            case POINT:
-                jtsGeometry = deserializePoint(pbGeometry);
-                break;
-            case LINESTRING:
-                jtsGeometry = deserializeLineString(pbGeometry);
-                break;
-            case POLYGON:
-                jtsGeometry = deserializePolygon(pbGeometry);
-                break;
-            case MULTIPOINT:
-                jtsGeometry = deserializeMultiPoint(pbGeometry);
-                break;
-            case MULTILINESTRING:
-                jtsGeometry = deserializeMultiLineString(pbGeometry);
-                break;
-            case LINEARRING:
-                jtsGeometry = deserializeLinearRing(pbGeometry);
-                break;
-            case MULTIPOLYGON:
-                jtsGeometry = deserializeMultiPolygon(pbGeometry);
-                break;
-            case GEOMETRYCOLLECTION:
-                jtsGeometry = deserializeGeoCollection(pbGeometry);
-                break;
-            case TRIANGLE:
-                jtsGeometry = deserializeTriangle(pbGeometry);
-                break;
-            case LINE:
-                jtsGeometry = deserializeLine(pbGeometry);
-                break;
-            default:
-                logger.error("Unsupported Geometric type for Protobuf deserialization");
-        }
-        return jtsGeometry;
-    }
-
-    public void close() throws IOException {
-        inputStream.close();
-    }
-
-    private Point deserializePoint(GeoProtobuf.Geometry pbGeometry) {
-        Coordinate jtsCoordinate = createJtsCoordinate(pbGeometry.getCoordinates(0));
-        Point point = geometryFactory.createPoint(jtsCoordinate);
-        return point;
-    }
-
-    private MultiPoint deserializeMultiPoint(GeoProtobuf.Geometry pbGeometry) {
-        Point[] jtsPoints = pbGeometry.getGeometriesList().
-                stream().map(this::deserializePoint).collect(Collectors.toList()).stream().toArray(Point[]::new);
-        MultiPoint multiPoint = geometryFactory.createMultiPoint(jtsPoints);
-        return multiPoint;
-    }
-
-    private LineString deserializeLineString(GeoProtobuf.Geometry pbGeometry) {
-        Coordinate[] jtsCoordinates = pbGeometry.getCoordinatesList().
-                stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-        LineString lineString = geometryFactory.createLineString(jtsCoordinates);
-        return lineString;
-    }
-
-    public LineSegment deserializeLine(GeoProtobuf.Geometry pbGeometry) throws IOException {
-        Coordinate[] jtsCoordinates = pbGeometry.getCoordinatesList().
-                stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-        LineSegment lineSegment = new LineSegment(jtsCoordinates[0], jtsCoordinates[1]);
-        return lineSegment;
+        this(inputStream, false);
     }
 
-    public Triangle deserializeTriangle(GeoProtobuf.Geometry pbGeometry) throws IOException {
-        Coordinate[] jtsCoordinates = pbGeometry.getCoordinatesList().
-                stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-        Triangle triangle = new Triangle(jtsCoordinates[0], jtsCoordinates[1], jtsCoordinates[2]);
-        return triangle;
+    /**
+     * @param lazy true to return a {@link LazyGeometryLT} from {@link #deserialize()}, which decodes the geometry of
+     *             the record only when it is requested
+     */
+    public PBDeserializationHandlerLT(InputStream inputStream, boolean lazy) {
+        super(lazy ? DeserializerType.PROTOBUF_LAZY_DESERIALIZER_LT : DeserializerType.PROTOBUF_DESERIALIZER_LT);
+        this.inputStream = inputStream;
+        this.codedInput = CodedInputStream.newInstance(inputStream);
+        this.geometryReader = new PBGeometryReaderLT(new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY));
+        this.lazy = lazy;
     }
 
-    private LinearRing deserializeLinearRing(GeoProtobuf.Geometry pbGeometry) {
-        Coordinate[] jtsCoordinates = pbGeometry.getCoordinatesList().
-                stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-        LinearRing linearRing = geometryFactory.createLinearRing(jtsCoordinates);
-        return linearRing;
+    public boolean isLazy() {
+        return lazy;
     }
 
-    private MultiLineString deserializeMultiLineString(GeoProtobuf.Geometry pbGeometry) {
-        LineString[] jtsLineStrings = pbGeometry.getGeometriesList().
-                stream().map(this::deserializeLineString).collect(Collectors.toList()).stream().toArray(LineString[]::new);
-        MultiLineString multiLineString = geometryFactory.createMultiLineString(jtsLineStrings);
-        return multiLineString;
+    public Envelope getFilter() {
+        return geometryReader.getFilter();
     }
 
-    private Polygon deserializePolygon(GeoProtobuf.Geometry pbGeometry) {
-        Polygon polygon;
-        if (pbGeometry.getGeometriesCount() == 1) {
-            GeoProtobuf.Geometry exteriorLS = pbGeometry.getGeometries(0);
-            Coordinate[] jtsCoordinates = exteriorLS.getCoordinatesList().
-                    stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-            polygon = geometryFactory.createPolygon(jtsCoordinates);
-
-        } else {
-            GeoProtobuf.Geometry exteriorLS = pbGeometry.getGeometries(0);
-            List<GeoProtobuf.Geometry> interiorLSs = pbGeometry.getGeometries(1).getGeometriesList();
-
-            Coordinate[] exCoordinates = exteriorLS.getCoordinatesList().
-                    stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-
-            LinearRing exteriorLR = geometryFactory.createLinearRing(exCoordinates);
-
-            List<LinearRing> jtsInteriorLRs = new ArrayList();
-            for (GeoProtobuf.Geometry geo : interiorLSs) {
-                Coordinate[] inCoordinates = geo.getCoordinatesList().
-                        stream().map(this::createJtsCoordinate).collect(Collectors.toList()).stream().toArray(Coordinate[]::new);
-                jtsInteriorLRs.add(geometryFactory.createLinearRing(inCoordinates));
-            }
-            polygon = geometryFactory.createPolygon(exteriorLR, jtsInteriorLRs.stream().toArray(LinearRing[]::new));
-        }
-        return polygon;
+    /**
+     * Returns only the geometries intersecting the envelope from {@link #deserialize()}, records written with
+     * {@link org.n52.tsf.model.SerializationOptions#setRecordEnvelopes(boolean)} are skipped without decoding.
+     *
+     * @param filter the filter envelope, or null to read all geometries
+     */
+    public void setFilter(Envelope filter) {
+        geometryReader.setFilter(filter);
     }
 
-    private MultiPolygon deserializeMultiPolygon(GeoProtobuf.Geometry pbGeometry) {
-        Polygon[] jtsPolygons = pbGeometry.getGeometriesList().
-                stream().map(this::deserializePolygon).collect(Collectors.toList()).stream().toArray(Polygon[]::new);
-        MultiPolygon multiPolygon = geometryFactory.createMultiPolygon(jtsPolygons);
-        return multiPolygon;
-    }
-
-    private Coordinate createJtsCoordinate(GeoProtobuf.Coordinate pbCoordinate) {
-        Coordinate jtsCoordinate = new Coordinate(pbCoordinate.getX(), pbCoordinate.getY());
-        return jtsCoordinate;
-    }
-
-    private GeometryCollection deserializeGeoCollection(GeoProtobuf.Geometry pbGeometry) {
-        Geometry[] jtsGeometries = pbGeometry.getGeometriesList().
-                stream().map(this::deserializeGeometry).collect(Collectors.toList()).stream().toArray(Geometry[]::new);
-        return geometryFactory.createGeometryCollection(jtsGeometries);
+    public Object deserialize() throws IOException {
+        return lazy ? geometryReader.readLazy(codedInput) : geometryReader.readDelimited(codedInput);
     }
 
-    private Geometry deserializeGeometry(GeoProtobuf.Geometry pbGeometry) {
-        switch (pbGeometry.getType()) {
-            case POINT:
-                return deserializePoint(pbGeometry);
-            case LINESTRING:
-                return deserializeLineString(pbGeometry);
-            case POLYGON:
-                return deserializePolygon(pbGeometry);
-            case MULTIPOINT:
-                return deserializeMultiPoint(pbGeometry);
-            case MULTILINESTRING:
-                return deserializeMultiLineString(pbGeometry);
-            case LINEARRING:
-                return deserializeLinearRing(pbGeometry);
-            case MULTIPOLYGON:
-                return deserializeMultiPolygon(pbGeometry);
-            default:
-                logger.error("Unsupported Geometric type for Protobuf deserialization");
-                return null;
-        }
+    public void close() throws IOException {
+        inputStream.close();
     }
 }
@@ -0,0 +1,126 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.locationtech;
+
+import com.google.protobuf.CodedInputStream;
+import org.apache.avro.util.ByteBufferInputStream;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.n52.tsf.model.DeserializationHandler;
+import org.n52.tsf.model.DeserializerType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+/**
+ * This class provides the ProtoBuf to JTS Deserialization of a memory-mapped file of length delimited records, as
+ * written by {@link PBSerializationHandlerLT}. Packed coordinates, written with
+ * {@link org.n52.tsf.model.SerializationOptions#setPackedCoordinates(boolean)}, are returned as
+ * {@link MappedCoordinateSequenceLT} views of the mapping, so the geometries share the page cache instead of
+ * copying their ordinates onto the heap. The other coordinate encodings are copied as usual.
+ * <p>
+ * The file is mapped in windows of MAPPING_SIZE bytes, or of the record size for larger records. A window stays
+ * mapped as long as geometries viewing it are reachable, the file must not be modified while they are used.
+ * The records are decoded through a stream over the window, as the direct buffer decoder of protobuf 3.3 does
+ * not run on current JVMs, so ordinates only pass through its fixed size buffer.
+ */
+public class PBMappedDeserializationHandlerLT extends DeserializationHandler {
+    private static final int MAPPING_SIZE = 1 << 30;
+    // the longest varint32 length prefix
+    private static final int MAX_PREFIX_SIZE = 5;
+
+    private FileChannel channel;
+    private long size;
+    private PBGeometryReaderLT geometryReader;
+    private MappedByteBuffer mapping;
+    private long mappingStart;
+    // reads the window from the start of the next record on
+    private CodedInputStream codedInput;
+    private long position;
+
+    public PBMappedDeserializationHandlerLT(Path path) throws IOException {
+        super(DeserializerType.PROTOBUF_MAPPED_DESERIALIZER_LT);
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        geometryReader = new PBGeometryReaderLT(new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY));
+    }
+
+    public Object deserialize() throws IOException {
+        if (position >= size) {
+            return null;
+        }
+        ByteBuffer prefix = map(position, (int) Math.min(MAX_PREFIX_SIZE, size - position));
+        int length = 0;
+        int prefixSize = 0;
+        byte b;
+        do {
+            if (!prefix.hasRemaining()) {
+                throw new EOFException("Truncated record length at " + position);
+            }
+            b = prefix.get();
+            length |= (b & 0x7F) << (7 * prefixSize++);
+        } while (b < 0);
+        if (length < 0 || position + prefixSize + length > size) {
+            throw new EOFException("Truncated record at " + position);
+        }
+        long start = position;
+        position += prefixSize + length;
+        if (start + prefixSize + length > mappingStart + mapping.capacity()) {
+            remap(start, prefixSize + length);
+        }
+        return geometryReader.readDelimited(codedInput, mapping, (int) (start - mappingStart));
+    }
+
+    public void close() throws IOException {
+        mapping = null;
+        codedInput = null;
+        channel.close();
+    }
+
+    /**
+     * @return a view of the file region, the window is moved to the region if it does not contain it
+     */
+    private ByteBuffer map(long start, int length) throws IOException {
+        if (mapping == null || start + length > mappingStart + mapping.capacity()) {
+            remap(start, length);
+        }
+        ByteBuffer region = mapping.duplicate();
+        region.position((int) (start - mappingStart));
+        region.limit((int) (start - mappingStart) + length);
+        return region.slice();
+    }
+
+    /**
+     * Maps a window starting at the next record and containing at least the given length.
+     */
+    private void remap(long start, int length) throws IOException {
+        mapping = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(Math.max(MAPPING_SIZE, length), size - start));
+        mappingStart = start;
+        codedInput = CodedInputStream.newInstance(new ByteBufferInputStream(Collections.singletonList(mapping.duplicate())));
+        codedInput.setSizeLimit(Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,535 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.vividsolutions;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import org.apache.log4j.Logger;
+import com.vividsolutions.jts.geom.*;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
+import org.n52.tsf.model.vector.CoordinateDimension;
+import org.n52.tsf.serialization.protobuf.gen.GeoProtobuf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads JTS geometries from the GeoProtobuf wire format straight out of a {@link CodedInputStream}.
+ * Ordinates are decoded into {@link PackedCoordinateSequence.Double} arrays, so no GeoProtobuf messages and
+ * no per vertex objects are created. Fields are expected in field number order, as written by protobuf
+ * and by {@link PBGeometryWriterVS}. With a filter envelope, records whose leading envelope field does not
+ * intersect the filter are skipped by their length without decoding their coordinates.
+ */
+public class PBGeometryReaderVS {
+    private final static Logger logger = Logger.getLogger(PBGeometryReaderVS.class);
+
+    private static final int TYPE_TAG = GeoProtobuf.Geometry.TYPE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int COORDINATES_TAG = GeoProtobuf.Geometry.COORDINATES_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int GEOMETRIES_TAG = GeoProtobuf.Geometry.GEOMETRIES_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int PACKED_COORDINATES_TAG = GeoProtobuf.Geometry.PACKED_COORDINATES_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int SCALE_TAG = GeoProtobuf.Geometry.SCALE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int DELTA_COORDINATES_TAG = GeoProtobuf.Geometry.DELTA_COORDINATES_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int DIMENSION_TAG = GeoProtobuf.Geometry.DIMENSION_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int ENVELOPE_TAG = GeoProtobuf.Geometry.ENVELOPE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int MIN_X_TAG = GeoProtobuf.Envelope.MIN_X_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int MIN_Y_TAG = GeoProtobuf.Envelope.MIN_Y_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int MAX_X_TAG = GeoProtobuf.Envelope.MAX_X_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int MAX_Y_TAG = GeoProtobuf.Envelope.MAX_Y_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int X_TAG = GeoProtobuf.Coordinate.X_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int Y_TAG = GeoProtobuf.Coordinate.Y_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int Z_TAG = GeoProtobuf.Coordinate.Z_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int M_TAG = GeoProtobuf.Coordinate.M_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_FIXED64;
+    // ordinates of a nested coordinate message in the ordinate stack
+    private static final int NESTED_STRIDE = 4;
+    // the default recursion limit of CodedInputStream, which bounds the nesting of generated message parsers
+    private static final int RECURSION_LIMIT = 100;
+
+    // the role a nested message plays in its parent, geometries are decoded by their type field
+    private static final int GEOMETRY = 0;
+    private static final int RING = 1;
+    private static final int RING_LIST = 2;
+
+    private final GeometryFactory geometryFactory;
+    // ordinates of the nested coordinates currently being decoded, used as a stack by nested messages
+    private double[] ordinates = new double[256];
+    private int ordinateCount;
+    private long[] deltas = new long[256];
+    private int deltaCount;
+    private double scale;
+    // delta decoded sequences waiting for the scale of their record
+    private final List<CoordinateSequence> quantizedSequences = new ArrayList<>();
+    private Envelope filter;
+    private long skippedCount;
+    // the buffer viewed by the packed sequences of the record being read, and its index of the record start
+    private ByteBuffer view;
+    private int viewStart;
+    // the nesting level of the message being decoded
+    private int recursionDepth;
+
+    public PBGeometryReaderVS(GeometryFactory geometryFactory) {
+        this.geometryFactory = geometryFactory;
+    }
+
+    public Envelope getFilter() {
+        return filter;
+    }
+
+    /**
+     * Restricts {@link #readDelimited(CodedInputStream)} to the records intersecting the envelope. Records
+     * without an envelope field are decoded and tested by the envelope of their geometry.
+     *
+     * @param filter the filter envelope, or null to read all records
+     */
+    public void setFilter(Envelope filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @return the number of records rejected by the filter so far
+     */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Reads the next length delimited geometry record intersecting the filter.
+     *
+     * @return the JTS geometry, LineSegment or Triangle, or null at the end of the stream
+     */
+    public Object readDelimited(CodedInputStream input) throws IOException {
+        while (!input.isAtEnd()) {
+            input.resetSizeCounter();
+            int length = input.readRawVarint32();
+            int oldLimit = input.pushLimit(length);
+            int tag = input.readTag();
+            boolean tested = false;
+            if (filter != null && tag == ENVELOPE_TAG) {
+                if (!filter.intersects(readEnvelope(input))) {
+                    input.skipRawBytes(input.getBytesUntilLimit());
+                    input.popLimit(oldLimit);
+                    skippedCount++;
+                    continue;
+                }
+                tested = true;
+                tag = input.readTag();
+            }
+            Object jtsGeometry = readRecord(input, tag);
+            input.popLimit(oldLimit);
+            if (filter == null || tested || filter.intersects(GeometryEnvelopesVS.getEnvelope(jtsGeometry))) {
+                return jtsGeometry;
+            }
+            skippedCount++;
+        }
+        return null;
+    }
+
+    /**
+     * Reads the next length delimited geometry record intersecting the filter as a {@link LazyGeometryVS}, which
+     * holds the encoded record and decodes its geometry on first access. Only the leading envelope and type fields
+     * are decoded, records without an envelope field are decoded when tested by the filter.
+     *
+     * @return the lazy geometry, or null at the end of the stream
+     */
+    public LazyGeometryVS readLazy(CodedInputStream input) throws IOException {
+        while (!input.isAtEnd()) {
+            input.resetSizeCounter();
+            byte[] bytes = input.readByteArray();
+            CodedInputStream recordInput = CodedInputStream.newInstance(bytes);
+            int tag = recordInput.readTag();
+            Envelope envelope = null;
+            if (tag == ENVELOPE_TAG) {
+                envelope = readEnvelope(recordInput);
+                tag = recordInput.readTag();
+            }
+            int type = tag == TYPE_TAG ? recordInput.readEnum() : GeoProtobuf.Geometry.Type.POINT_VALUE;
+            LazyGeometryVS lazyGeometry = new LazyGeometryVS(this, bytes, type, envelope);
+            if (filter == null || filter.intersects(lazyGeometry.getEnvelope())) {
+                return lazyGeometry;
+            }
+            skippedCount++;
+        }
+        return null;
+    }
+
+    /**
+     * Decodes a record read by {@link #readLazy(CodedInputStream)}.
+     */
+    Object readRecord(byte[] bytes) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(bytes);
+        return readRecord(input, input.readTag());
+    }
+
+    /**
+     * Reads the next length delimited geometry record from an input reading the given buffer. Packed ordinates are
+     * returned as {@link MappedCoordinateSequenceVS} views of the buffer instead of being copied, the other
+     * encodings are copied. The filter is not applied.
+     *
+     * @param view   the buffer read by the input
+     * @param offset the buffer index of the next record
+     * @return the JTS geometry, LineSegment or Triangle, or null at the end of the stream
+     */
+    public Object readDelimited(CodedInputStream input, ByteBuffer view, int offset) throws IOException {
+        if (input.isAtEnd()) {
+            return null;
+        }
+        input.resetSizeCounter();
+        int length = input.readRawVarint32();
+        int oldLimit = input.pushLimit(length);
+        this.view = view;
+        viewStart = offset;
+        try {
+            Object jtsGeometry = readRecord(input, input.readTag());
+            input.popLimit(oldLimit);
+            return jtsGeometry;
+        } finally {
+            this.view = null;
+        }
+    }
+
+    /**
+     * Decodes the record following its first tag.
+     */
+    private Object readRecord(CodedInputStream input, int tag) throws IOException {
+        scale = 0;
+        ordinateCount = 0;
+        recursionDepth = 0;
+        quantizedSequences.clear();
+        Object jtsGeometry = readMessage(input, GEOMETRY, tag);
+        input.checkLastTagWas(0);
+        if (!quantizedSequences.isEmpty()) {
+            for (CoordinateSequence sequence : quantizedSequences) {
+                for (int i = 0; i < sequence.size(); i++) {
+                    for (int ordinate = 0; ordinate < sequence.getDimension(); ordinate++) {
+                        sequence.setOrdinate(i, ordinate, sequence.getOrdinate(i, ordinate) / scale);
+                    }
+                }
+            }
+            ((Geometry) jtsGeometry).geometryChanged();
+        }
+        return jtsGeometry;
+    }
+
+    private Envelope readEnvelope(CodedInputStream input) throws IOException {
+        double minX = 0;
+        double minY = 0;
+        double maxX = 0;
+        double maxY = 0;
+        int length = input.readRawVarint32();
+        int oldLimit = input.pushLimit(length);
+        boolean done = false;
+        while (!done) {
+            int tag = input.readTag();
+            switch (tag) {
+                case 0:
+                    done = true;
+                    break;
+                case MIN_X_TAG:
+                    minX = input.readDouble();
+                    break;
+                case MIN_Y_TAG:
+                    minY = input.readDouble();
+                    break;
+                case MAX_X_TAG:
+                    maxX = input.readDouble();
+                    break;
+                case MAX_Y_TAG:
+                    maxY = input.readDouble();
+                    break;
+                default:
+                    if (!input.skipField(tag)) {
+                        done = true;
+                    }
+            }
+        }
+        input.popLimit(oldLimit);
+        return new Envelope(minX, maxX, minY, maxY);
+    }
+
+    private Object readMessage(CodedInputStream input, int role) throws IOException {
+        return readMessage(input, role, input.readTag());
+    }
+
+    /**
+     * @param tag the first tag of the message, already read from the input
+     */
+    private Object readMessage(CodedInputStream input, int role, int tag) throws IOException {
+        int type = GeoProtobuf.Geometry.Type.POINT_VALUE;
+        int dimension = CoordinateDimension.LEGACY;
+        int ordinateStart = ordinateCount;
+        double[] packedOrdinates = null;
+        int viewOffset = -1;
+        int viewLength = 0;
+        boolean delta = false;
+        List<Object> children = null;
+        boolean done = false;
+        while (!done) {
+            switch (tag) {
+                case 0:
+                    done = true;
+                    break;
+                case TYPE_TAG:
+                    type = input.readEnum();
+                    break;
+                case COORDINATES_TAG:
+                    readCoordinate(input);
+                    break;
+                case GEOMETRIES_TAG: {
+                    if (children == null) {
+                        children = new ArrayList<>();
+                    }
+                    int length = input.readRawVarint32();
+                    int oldLimit = input.pushLimit(length);
+                    if (++recursionDepth > RECURSION_LIMIT) {
+                        throw new InvalidProtocolBufferException("Geometry nested deeper than " + RECURSION_LIMIT
+                                + " levels, the input is corrupt or crafted");
+                    }
+                    children.add(readMessage(input, getChildRole(role, type, children.size())));
+                    recursionDepth--;
+                    input.checkLastTagWas(0);
+                    input.popLimit(oldLimit);
+                    break;
+                }
+                case PACKED_COORDINATES_TAG: {
+                    int length = input.readRawVarint32();
+                    if (view != null) {
+                        viewOffset = viewStart + input.getTotalBytesRead();
+                        viewLength = length;
+                        input.skipRawBytes(length);
+                        break;
+                    }
+                    packedOrdinates = new double[length / 8];
+                    for (int i = 0; i < packedOrdinates.length; i++) {
+                        packedOrdinates[i] = input.readDouble();
+                    }
+                    break;
+                }
+                case SCALE_TAG:
+                    scale = input.readDouble();
+                    break;
+                case DELTA_COORDINATES_TAG:
+                    readDeltaCoordinates(input);
+                    delta = true;
+                    break;
+                case DIMENSION_TAG:
+                    dimension = input.readEnum();
+                    break;
+                default:
+                    if (!input.skipField(tag)) {
+                        done = true;
+                    }
+            }
+            if (!done) {
+                tag = input.readTag();
+            }
+        }
+        if (dimension < CoordinateDimension.LEGACY || dimension > CoordinateDimension.XYZM) {
+            throw new InvalidProtocolBufferException("Unsupported coordinate dimension " + dimension);
+        }
+        CoordinateSequence sequence;
+        if (viewOffset >= 0) {
+            int[] stored = CoordinateDimension.getOrdinates(dimension);
+            sequence = new MappedCoordinateSequenceVS(view, viewOffset, viewLength / 8 / stored.length,
+                    CoordinateDimension.getSequenceDimension(dimension), stored);
+        } else if (packedOrdinates != null) {
+            sequence = createPackedSequence(packedOrdinates, dimension);
+        } else if (delta) {
+            sequence = createDeltaSequence(dimension);
+        } else {
+            sequence = createNestedSequence(ordinateStart, dimension);
+        }
+        ordinateCount = ordinateStart;
+        switch (role) {
+            case RING:
+                return sequence;
+            case RING_LIST:
+                return children == null ? new ArrayList<>() : children;
+            default:
+                return createGeometry(type, sequence, children);
+        }
+    }
+
+    private CoordinateSequence createNestedSequence(int ordinateStart, int dimension) {
+        int sequenceDimension = CoordinateDimension.getSequenceDimension(dimension);
+        int size = (ordinateCount - ordinateStart) / NESTED_STRIDE;
+        double[] coords = newOrdinateArray(size, sequenceDimension, CoordinateDimension.getOrdinates(dimension));
+        for (int i = 0; i < size; i++) {
+            for (int ordinate : CoordinateDimension.getOrdinates(dimension)) {
+                coords[i * sequenceDimension + ordinate] = ordinates[ordinateStart + i * NESTED_STRIDE + ordinate];
+            }
+        }
+        return new PackedCoordinateSequence.Double(coords, sequenceDimension);
+    }
+
+    private CoordinateSequence createPackedSequence(double[] packedOrdinates, int dimension) {
+        int sequenceDimension = CoordinateDimension.getSequenceDimension(dimension);
+        int[] stored = CoordinateDimension.getOrdinates(dimension);
+        if (stored.length == sequenceDimension) {
+            return new PackedCoordinateSequence.Double(packedOrdinates, sequenceDimension);
+        }
+        int size = packedOrdinates.length / stored.length;
+        double[] coords = newOrdinateArray(size, sequenceDimension, stored);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < stored.length; j++) {
+                coords[i * sequenceDimension + stored[j]] = packedOrdinates[i * stored.length + j];
+            }
+        }
+        return new PackedCoordinateSequence.Double(coords, sequenceDimension);
+    }
+
+    private CoordinateSequence createDeltaSequence(int dimension) {
+        int sequenceDimension = CoordinateDimension.getDeltaSequenceDimension(dimension);
+        int[] stored = CoordinateDimension.getDeltaOrdinates(dimension);
+        int size = deltaCount / stored.length;
+        double[] coords = newOrdinateArray(size, sequenceDimension, stored);
+        for (int j = 0; j < stored.length; j++) {
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                value += deltas[i * stored.length + j];
+                coords[i * sequenceDimension + stored[j]] = scale != 0 ? value / scale : value;
+            }
+        }
+        CoordinateSequence sequence = new PackedCoordinateSequence.Double(coords, sequenceDimension);
+        if (scale == 0) {
+            quantizedSequences.add(sequence);
+        }
+        return sequence;
+    }
+
+    private static double[] newOrdinateArray(int size, int sequenceDimension, int[] stored) {
+        double[] coords = new double[size * sequenceDimension];
+        if (sequenceDimension > stored.length) {
+            Arrays.fill(coords, Double.NaN);
+        }
+        return coords;
+    }
+
+    private void readCoordinate(CodedInputStream input) throws IOException {
+        int length = input.readRawVarint32();
+        int oldLimit = input.pushLimit(length);
+        double x = 0;
+        double y = 0;
+        double z = 0;
+        double m = 0;
+        boolean done = false;
+        while (!done) {
+            int tag = input.readTag();
+            switch (tag) {
+                case 0:
+                    done = true;
+                    break;
+                case X_TAG:
+                    x = input.readDouble();
+                    break;
+                case Y_TAG:
+                    y = input.readDouble();
+                    break;
+                case Z_TAG:
+                    z = input.readDouble();
+                    break;
+                case M_TAG:
+                    m = input.readDouble();
+                    break;
+                default:
+                    if (!input.skipField(tag)) {
+                        done = true;
+                    }
+            }
+        }
+        input.popLimit(oldLimit);
+        addOrdinate(x);
+        addOrdinate(y);
+        addOrdinate(z);
+        addOrdinate(m);
+    }
+
+    private void readDeltaCoordinates(CodedInputStream input) throws IOException {
+        int length = input.readRawVarint32();
+        int oldLimit = input.pushLimit(length);
+        deltaCount = 0;
+        while (input.getBytesUntilLimit() > 0) {
+            if (deltaCount == deltas.length) {
+                deltas = Arrays.copyOf(deltas, deltaCount * 2);
+            }
+            deltas[deltaCount++] = input.readSInt64();
+        }
+        input.popLimit(oldLimit);
+    }
+
+    private void addOrdinate(double ordinate) {
+        if (ordinateCount == ordinates.length) {
+            ordinates = Arrays.copyOf(ordinates, ordinateCount * 2);
+        }
+        ordinates[ordinateCount++] = ordinate;
+    }
+
+    private static int getChildRole(int role, int type, int childIndex) {
+        if (role == RING_LIST) {
+            return RING;
+        } else if (type == GeoProtobuf.Geometry.Type.POLYGON_VALUE) {
+            return childIndex == 0 ? RING : RING_LIST;
+        } else {
+            return GEOMETRY;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object createGeometry(int type, CoordinateSequence sequence, List<Object> children) {
+        if (children == null) {
+            children = new ArrayList<>();
+        }
+        switch (type) {
+            case GeoProtobuf.Geometry.Type.POINT_VALUE:
+                return geometryFactory.createPoint(sequence);
+            case GeoProtobuf.Geometry.Type.LINESTRING_VALUE:
+                return geometryFactory.createLineString(sequence);
+            case GeoProtobuf.Geometry.Type.LINEARRING_VALUE:
+                return geometryFactory.createLinearRing(sequence);
+            case GeoProtobuf.Geometry.Type.POLYGON_VALUE: {
+                LinearRing exteriorLR = geometryFactory.createLinearRing((CoordinateSequence) children.get(0));
+                List<Object> interiorLSs = children.size() > 1 ? (List<Object>) children.get(1) : new ArrayList<>();
+                LinearRing[] jtsInteriorLRs = new LinearRing[interiorLSs.size()];
+                for (int i = 0; i < jtsInteriorLRs.length; i++) {
+                    jtsInteriorLRs[i] = geometryFactory.createLinearRing((CoordinateSequence) interiorLSs.get(i));
+                }
+                return geometryFactory.createPolygon(exteriorLR, jtsInteriorLRs);
+            }
+            case GeoProtobuf.Geometry.Type.MULTIPOINT_VALUE:
+                return geometryFactory.createMultiPoint(children.toArray(new Point[children.size()]));
+            case GeoProtobuf.Geometry.Type.MULTILINESTRING_VALUE:
+                return geometryFactory.createMultiLineString(children.toArray(new LineString[children.size()]));
+            case GeoProtobuf.Geometry.Type.MULTIPOLYGON_VALUE:
+                return geometryFactory.createMultiPolygon(children.toArray(new Polygon[children.size()]));
+            case GeoProtobuf.Geometry.Type.GEOMETRYCOLLECTION_VALUE:
+                return geometryFactory.createGeometryCollection(children.toArray(new Geometry[children.size()]));
+            case GeoProtobuf.Geometry.Type.LINE_VALUE:
+                return new LineSegment(sequence.getCoordinate(0), sequence.getCoordinate(1));
+            case GeoProtobuf.Geometry.Type.TRIANGLE_VALUE:
+                return new Triangle(sequence.getCoordinate(0), sequence.getCoordinate(1), sequence.getCoordinate(2));
+            default:
+                logger.error("Unsupported Geometric type for Protobuf deserialization");
+                return null;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.vividsolutions;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.vividsolutions.jts.geom.*;
+import com.vividsolutions.jts.geom.impl.CoordinateArraySequence;
+import org.n52.tsf.model.SerializationOptions;
+import org.n52.tsf.model.vector.CoordinateDimension;
+import org.n52.tsf.serialization.protobuf.gen.GeoProtobuf;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Writes JTS geometries in the GeoProtobuf wire format straight into a {@link CodedOutputStream}.
+ * A first pass over the geometry computes the size of every nested message, a second pass writes the
+ * fields, so no GeoProtobuf builders or messages are created. The output is byte-identical to
+ * {@code GeoProtobuf.Geometry#writeDelimitedTo}, except for the record envelope which is written as the first
+ * field instead of the last.
+ */
+public class PBGeometryWriterVS {
+    private static final int GEOMETRIES = GeoProtobuf.Geometry.GEOMETRIES_FIELD_NUMBER;
+    private static final int[] ENVELOPE_FIELDS = {GeoProtobuf.Envelope.MIN_X_FIELD_NUMBER,
+            GeoProtobuf.Envelope.MIN_Y_FIELD_NUMBER, GeoProtobuf.Envelope.MAX_X_FIELD_NUMBER,
+            GeoProtobuf.Envelope.MAX_Y_FIELD_NUMBER};
+
+    private final SerializationOptions options;
+    // null during the sizing pass
+    private CodedOutputStream output;
+    // sizes of the length delimited fields in the order they are visited
+    private int[] sizes = new int[64];
+    private int sizeCount;
+    private int sizeIndex;
+    private final long[] lastOrdinates = new long[4];
+
+    public PBGeometryWriterVS(SerializationOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Computes the serialized size of the geometry record, without the length prefix.
+     */
+    public int computeSize(Object jtsGeometry) throws IOException {
+        output = null;
+        sizeCount = 0;
+        return encodeRecord(jtsGeometry);
+    }
+
+    /**
+     * Writes the geometry record with its length prefix.
+     *
+     * @return the number of bytes written
+     */
+    public int writeDelimited(Object jtsGeometry, CodedOutputStream codedOutput) throws IOException {
+        int size = computeSize(jtsGeometry);
+        codedOutput.writeUInt32NoTag(size);
+        output = codedOutput;
+        sizeIndex = 0;
+        try {
+            encodeRecord(jtsGeometry);
+        } finally {
+            output = null;
+        }
+        return CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+
+    private int encodeRecord(Object jtsGeometry) throws IOException {
+        int size = 0;
+        if (options.isRecordEnvelopes()) {
+            size += encodeEnvelope(GeometryEnvelopesVS.getEnvelope(jtsGeometry));
+        }
+        return size + encodeGeometry(jtsGeometry, true);
+    }
+
+    private int encodeGeometry(Object jtsGeometry, boolean topLevel) throws IOException {
+        if (jtsGeometry instanceof Point) {
+            return encodePoint((Point) jtsGeometry, topLevel);
+        } else if (jtsGeometry instanceof LinearRing) {
+            return encodeLineString((LinearRing) jtsGeometry, GeoProtobuf.Geometry.Type.LINEARRING_VALUE, topLevel);
+        } else if (jtsGeometry instanceof LineString) {
+            return encodeLineString((LineString) jtsGeometry, GeoProtobuf.Geometry.Type.LINESTRING_VALUE, topLevel);
+        } else if (jtsGeometry instanceof Polygon) {
+            return encodePolygon((Polygon) jtsGeometry, topLevel);
+        } else if (jtsGeometry instanceof MultiPoint || jtsGeometry instanceof MultiLineString
+                || jtsGeometry instanceof MultiPolygon) {
+            return encodeMulti((GeometryCollection) jtsGeometry, topLevel);
+        } else if (jtsGeometry instanceof LineSegment && topLevel) {
+            LineSegment jtsLineSegment = (LineSegment) jtsGeometry;
+            return encodeCoordinates(GeoProtobuf.Geometry.Type.LINE_VALUE, topLevel,
+                    jtsLineSegment.getCoordinate(0), jtsLineSegment.getCoordinate(1));
+        } else if (jtsGeometry instanceof Triangle && topLevel) {
+            Triangle jtsTriangle = (Triangle) jtsGeometry;
+            return encodeCoordinates(GeoProtobuf.Geometry.Type.TRIANGLE_VALUE, topLevel,
+                    jtsTriangle.p0, jtsTriangle.p1, jtsTriangle.p2);
+        } else if (jtsGeometry instanceof GeometryCollection) {
+            return encodeGeometryCollection((GeometryCollection) jtsGeometry, topLevel);
+        } else {
+            throw new IllegalArgumentException("Unsupported Geometric type for Protobuf Serialization");
+        }
+    }
+
+    private int encodePoint(Point jtsPoint, boolean topLevel) throws IOException {
+        CoordinateSequence sequence = jtsPoint.getCoordinateSequence();
+        if (sequence.size() == 0) {
+            throw new IllegalArgumentException("No Coordinate data available");
+        }
+        return encodeType(GeoProtobuf.Geometry.Type.POINT_VALUE) + encodeCoordinateSequence(sequence, topLevel);
+    }
+
+    private int encodeLineString(LineString jtsLineString, int type, boolean topLevel) throws IOException {
+        CoordinateSequence sequence = jtsLineString.getCoordinateSequence();
+        if (sequence.size() < 2) {
+            throw new IllegalArgumentException("Insufficient Coordinates");
+        }
+        return encodeType(type) + encodeCoordinateSequence(sequence, topLevel);
+    }
+
+    private int encodeCoordinates(int type, boolean topLevel, Coordinate... jtsCoordinates) throws IOException {
+        for (Coordinate coord : jtsCoordinates) {
+            if (coord == null) {
+                throw new IllegalArgumentException("Insufficient Coordinates");
+            }
+        }
+        return encodeType(type) + encodeCoordinateSequence(new CoordinateArraySequence(jtsCoordinates), topLevel);
+    }
+
+    private int encodePolygon(Polygon jtsPolygon, boolean topLevel) throws IOException {
+        int size = encodeType(GeoProtobuf.Geometry.Type.POLYGON_VALUE);
+        size += encodeMessage(GEOMETRIES, () -> encodeCoordinateSequence(jtsPolygon.getExteriorRing().getCoordinateSequence(), false));
+        if (jtsPolygon.getNumInteriorRing() > 0) {
+            size += encodeMessage(GEOMETRIES, () -> {
+                int interiorSize = 0;
+                for (int i = 0; i < jtsPolygon.getNumInteriorRing(); i++) {
+                    CoordinateSequence sequence = jtsPolygon.getInteriorRingN(i).getCoordinateSequence();
+                    interiorSize += encodeMessage(GEOMETRIES, () -> encodeCoordinateSequence(sequence, false));
+                }
+                return interiorSize;
+            });
+        }
+        return size + encodeScale(topLevel);
+    }
+
+    private int encodeMulti(GeometryCollection jtsMultiGeometry, boolean topLevel) throws IOException {
+        int type;
+        if (jtsMultiGeometry instanceof MultiPoint) {
+            type = GeoProtobuf.Geometry.Type.MULTIPOINT_VALUE;
+        } else if (jtsMultiGeometry instanceof MultiLineString) {
+            type = GeoProtobuf.Geometry.Type.MULTILINESTRING_VALUE;
+        } else {
+            type = GeoProtobuf.Geometry.Type.MULTIPOLYGON_VALUE;
+        }
+        int size = encodeType(type);
+        for (int i = 0; i < jtsMultiGeometry.getNumGeometries(); i++) {
+            Geometry jtsGeometry = jtsMultiGeometry.getGeometryN(i);
+            size += encodeMessage(GEOMETRIES, () -> encodeGeometry(jtsGeometry, false));
+        }
+        return size + encodeScale(topLevel);
+    }
+
+    private int encodeGeometryCollection(GeometryCollection jtsGeoCollection, boolean topLevel) throws IOException {
+        int size = encodeType(GeoProtobuf.Geometry.Type.GEOMETRYCOLLECTION_VALUE);
+        for (int i = 0; i < jtsGeoCollection.getNumGeometries(); i++) {
+            Geometry jtsGeometry = jtsGeoCollection.getGeometryN(i);
+            size += encodeMessage(GEOMETRIES, () -> encodeGeometry(jtsGeometry, false));
+        }
+        return size + encodeScale(topLevel);
+    }
+
+    private int encodeType(int type) throws IOException {
+        if (type == 0) {
+            return 0;
+        }
+        if (output != null) {
+            output.writeEnum(GeoProtobuf.Geometry.TYPE_FIELD_NUMBER, type);
+        }
+        return CodedOutputStream.computeEnumSize(GeoProtobuf.Geometry.TYPE_FIELD_NUMBER, type);
+    }
+
+    private int encodeScale(boolean topLevel) throws IOException {
+        double scale = options.getPrecisionScale();
+        if (!topLevel || scale == 0D) {
+            return 0;
+        }
+        if (output != null) {
+            output.writeDouble(GeoProtobuf.Geometry.SCALE_FIELD_NUMBER, scale);
+        }
+        return CodedOutputStream.computeDoubleSize(GeoProtobuf.Geometry.SCALE_FIELD_NUMBER, scale);
+    }
+
+    private int encodeCoordinateSequence(CoordinateSequence sequence, boolean topLevel) throws IOException {
+        int dimension = getDimension(sequence);
+        int size;
+        if (options.isFixedPrecision()) {
+            size = encodeScale(topLevel) + encodeDeltaCoordinates(sequence, CoordinateDimension.getDeltaOrdinates(dimension));
+        } else if (options.isPackedCoordinates()) {
+            size = encodePackedCoordinates(sequence, CoordinateDimension.getOrdinates(dimension));
+        } else {
+            boolean hasZ = CoordinateDimension.hasZ(dimension);
+            boolean hasM = CoordinateDimension.hasM(dimension);
+            size = 0;
+            for (int i = 0; i < sequence.size(); i++) {
+                size += encodeCoordinate(sequence.getX(i), sequence.getY(i),
+                        hasZ ? sequence.getOrdinate(i, CoordinateSequence.Z) : 0D,
+                        hasM ? sequence.getOrdinate(i, CoordinateSequence.M) : 0D);
+            }
+        }
+        if (output != null) {
+            output.writeEnum(GeoProtobuf.Geometry.DIMENSION_FIELD_NUMBER, dimension);
+        }
+        return size + CodedOutputStream.computeEnumSize(GeoProtobuf.Geometry.DIMENSION_FIELD_NUMBER, dimension);
+    }
+
+    private int encodeEnvelope(Envelope envelope) throws IOException {
+        if (envelope.isNull()) {
+            return 0;
+        }
+        double[] bounds = {envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY()};
+        int size = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            if (bounds[i] != 0D) {
+                size += CodedOutputStream.computeDoubleSize(ENVELOPE_FIELDS[i], bounds[i]);
+            }
+        }
+        if (output != null) {
+            output.writeTag(GeoProtobuf.Geometry.ENVELOPE_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(size);
+            for (int i = 0; i < bounds.length; i++) {
+                if (bounds[i] != 0D) {
+                    output.writeDouble(ENVELOPE_FIELDS[i], bounds[i]);
+                }
+            }
+        }
+        return CodedOutputStream.computeTagSize(GeoProtobuf.Geometry.ENVELOPE_FIELD_NUMBER)
+                + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+
+    private int encodeCoordinate(double x, double y, double z, double m) throws IOException {
+        int size = 0;
+        if (x != 0D) {
+            size += CodedOutputStream.computeDoubleSize(GeoProtobuf.Coordinate.X_FIELD_NUMBER, x);
+        }
+        if (y != 0D) {
+            size += CodedOutputStream.computeDoubleSize(GeoProtobuf.Coordinate.Y_FIELD_NUMBER, y);
+        }
+        if (z != 0D) {
+            size += CodedOutputStream.computeDoubleSize(GeoProtobuf.Coordinate.Z_FIELD_NUMBER, z);
+        }
+        if (m != 0D) {
+            size += CodedOutputStream.computeDoubleSize(GeoProtobuf.Coordinate.M_FIELD_NUMBER, m);
+        }
+        if (output != null) {
+            output.writeTag(GeoProtobuf.Geometry.COORDINATES_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(size);
+            if (x != 0D) {
+                output.writeDouble(GeoProtobuf.Coordinate.X_FIELD_NUMBER, x);
+            }
+            if (y != 0D) {
+                output.writeDouble(GeoProtobuf.Coordinate.Y_FIELD_NUMBER, y);
+            }
+            if (z != 0D) {
+                output.writeDouble(GeoProtobuf.Coordinate.Z_FIELD_NUMBER, z);
+            }
+            if (m != 0D) {
+                output.writeDouble(GeoProtobuf.Coordinate.M_FIELD_NUMBER, m);
+            }
+        }
+        return CodedOutputStream.computeTagSize(GeoProtobuf.Geometry.COORDINATES_FIELD_NUMBER)
+                + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+
+    private int encodePackedCoordinates(CoordinateSequence sequence, int[] ordinates) throws IOException {
+        if (sequence.size() == 0) {
+            return 0;
+        }
+        int dataSize = ordinates.length * 8 * sequence.size();
+        if (output != null) {
+            output.writeTag(GeoProtobuf.Geometry.PACKED_COORDINATES_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(dataSize);
+            for (int i = 0; i < sequence.size(); i++) {
+                for (int ordinate : ordinates) {
+                    output.writeDoubleNoTag(sequence.getOrdinate(i, ordinate));
+                }
+            }
+        }
+        return CodedOutputStream.computeTagSize(GeoProtobuf.Geometry.PACKED_COORDINATES_FIELD_NUMBER)
+                + CodedOutputStream.computeUInt32SizeNoTag(dataSize) + dataSize;
+    }
+
+    private int encodeDeltaCoordinates(CoordinateSequence sequence, int[] ordinates) throws IOException {
+        if (sequence.size() == 0) {
+            return 0;
+        }
+        double scale = options.getPrecisionScale();
+        int dataSize;
+        Arrays.fill(lastOrdinates, 0L);
+        if (output == null) {
+            dataSize = 0;
+            for (int i = 0; i < sequence.size(); i++) {
+                for (int j = 0; j < ordinates.length; j++) {
+                    long value = Math.round(sequence.getOrdinate(i, ordinates[j]) * scale);
+                    dataSize += CodedOutputStream.computeSInt64SizeNoTag(value - lastOrdinates[j]);
+                    lastOrdinates[j] = value;
+                }
+            }
+            pushSize(dataSize);
+        } else {
+            dataSize = sizes[sizeIndex++];
+            output.writeTag(GeoProtobuf.Geometry.DELTA_COORDINATES_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(dataSize);
+            for (int i = 0; i < sequence.size(); i++) {
+                for (int j = 0; j < ordinates.length; j++) {
+                    long value = Math.round(sequence.getOrdinate(i, ordinates[j]) * scale);
+                    output.writeSInt64NoTag(value - lastOrdinates[j]);
+                    lastOrdinates[j] = value;
+                }
+            }
+        }
+        return CodedOutputStream.computeTagSize(GeoProtobuf.Geometry.DELTA_COORDINATES_FIELD_NUMBER)
+                + CodedOutputStream.computeUInt32SizeNoTag(dataSize) + dataSize;
+    }
+
+    private int encodeMessage(int fieldNumber, MessageEncoder encoder) throws IOException {
+        int size;
+        if (output == null) {
+            int slot = pushSize(0);
+            size = encoder.encode();
+            sizes[slot] = size;
+        } else {
+            size = sizes[sizeIndex++];
+            output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(size);
+            encoder.encode();
+        }
+        return CodedOutputStream.computeTagSize(fieldNumber) + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+
+    private int pushSize(int size) {
+        if (sizeCount == sizes.length) {
+            sizes = Arrays.copyOf(sizes, sizeCount * 2);
+        }
+        sizes[sizeCount] = size;
+        return sizeCount++;
+    }
+
+    /**
+     * Returns the CoordinateDimension of the ordinates present in the sequence. Z and M are only written when at
+     * least one vertex has a value for them.
+     */
+    private static int getDimension(CoordinateSequence sequence) {
+        boolean hasZ = false;
+        boolean hasM = false;
+        for (int i = 0; i < sequence.size(); i++) {
+            hasZ |= sequence.getDimension() > 2 && !Double.isNaN(sequence.getOrdinate(i, CoordinateSequence.Z));
+            hasM |= sequence.getDimension() > 3 && !Double.isNaN(sequence.getOrdinate(i, CoordinateSequence.M));
+        }
+        return CoordinateDimension.valueOf(hasZ, hasM);
+    }
+
+    private interface MessageEncoder {
+        int encode() throws IOException;
+    }
+}
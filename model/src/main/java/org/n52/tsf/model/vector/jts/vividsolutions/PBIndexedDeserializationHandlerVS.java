@@ -0,0 +1,124 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.vividsolutions;
+
+import com.google.protobuf.CodedInputStream;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.n52.tsf.model.DeserializerType;
+import org.n52.tsf.model.IndexedDeserializationHandler;
+import org.n52.tsf.model.vector.IndexedContainer;
+import org.n52.tsf.model.vector.PackedRTree;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides the ProtoBuf to JTS Deserialization of an {@link IndexedContainer} with random access to
+ * its records.
+ */
+public class PBIndexedDeserializationHandlerVS extends IndexedDeserializationHandler {
+    private FileChannel channel;
+    private long[] offsets;
+    private PackedRTree spatialIndex;
+    private PBGeometryReaderVS geometryReader;
+    private CodedInputStream codedInput;
+    private int index = -1;
+
+    public PBIndexedDeserializationHandlerVS(Path path) throws IOException {
+        super(DeserializerType.PROTOBUF_INDEXED_DESERIALIZER_VS);
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            IndexedContainer container = IndexedContainer.read(channel);
+            offsets = container.getOffsets();
+            spatialIndex = container.getSpatialIndex();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        geometryReader = new PBGeometryReaderVS(new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY));
+        seek(0);
+    }
+
+    public long getCount() {
+        return offsets.length;
+    }
+
+    public boolean hasSpatialIndex() {
+        return spatialIndex != null;
+    }
+
+    /**
+     * Reads the records whose envelope intersects the given one, in record order. With a spatial index only the
+     * matching records are read, otherwise all records are read and filtered. The handler is positioned after the
+     * last record read.
+     */
+    public List<Object> query(Envelope envelope) throws IOException {
+        List<Object> geometries = new ArrayList<>();
+        if (spatialIndex == null) {
+            seek(0);
+            for (Object geometry : this) {
+                if (envelope.intersects(GeometryEnvelopesVS.getEnvelope(geometry))) {
+                    geometries.add(geometry);
+                }
+            }
+        } else if (!envelope.isNull()) {
+            for (long index : spatialIndex.search(envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(),
+                    envelope.getMaxY())) {
+                geometries.add(deserialize(index));
+            }
+        }
+        return geometries;
+    }
+
+    public void seek(long index) throws IOException {
+        if (index < 0 || index > offsets.length) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + offsets.length);
+        }
+        if (index == this.index) {
+            return;
+        }
+        this.index = (int) index;
+        codedInput = null;
+        if (index < offsets.length) {
+            channel.position(offsets[this.index]);
+            codedInput = CodedInputStream.newInstance(Channels.newInputStream(channel));
+        }
+    }
+
+    public Object deserialize() throws IOException {
+        if (index == offsets.length) {
+            return null;
+        }
+        index++;
+        return geometryReader.readDelimited(codedInput);
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
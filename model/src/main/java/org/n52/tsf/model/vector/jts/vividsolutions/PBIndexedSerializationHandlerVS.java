@@ -0,0 +1,131 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.vividsolutions;
+
+import com.google.protobuf.CodedOutputStream;
+import com.vividsolutions.jts.geom.Envelope;
+import org.n52.tsf.model.SerializationHandler;
+import org.n52.tsf.model.SerializationOptions;
+import org.n52.tsf.model.SerializerType;
+import org.n52.tsf.model.vector.IndexedContainer;
+import org.n52.tsf.model.vector.PackedRTree;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class provides the JTS to ProtoBuf Serialization into an {@link IndexedContainer}. The index is written
+ * on close. With {@link SerializationOptions#isSpatialIndex()} the records are kept in memory and written on close
+ * in Hilbert order, followed by the index and the R-tree of their envelopes.
+ */
+public class PBIndexedSerializationHandlerVS extends SerializationHandler {
+    private OutputStream output;
+    private CodedOutputStream codedOutput;
+    private PBGeometryWriterVS geometryWriter;
+    private int indexNodeSize;
+    // the container offset of the next byte, getTotalBytesWritten of CodedOutputStream is an int
+    private long position;
+    private long[] offsets = new long[64];
+    private int count;
+    private List<byte[]> records;
+    private double[] boxes;
+
+    public PBIndexedSerializationHandlerVS(OutputStream outputStream) throws IOException {
+        this(outputStream, new SerializationOptions());
+    }
+
+    public PBIndexedSerializationHandlerVS(OutputStream outputStream, SerializationOptions options) throws IOException {
+        this(outputStream, options, 0);
+    }
+
+    /**
+     * @param position the number of bytes written to the output before the container, lets tests of containers
+     *                 larger than 2 GiB start at a high offset
+     */
+    PBIndexedSerializationHandlerVS(OutputStream outputStream, SerializationOptions options, long position) throws IOException {
+        super(SerializerType.PROTOBUF_INDEXED_SERIALIZER_VS);
+        output = outputStream;
+        codedOutput = CodedOutputStream.newInstance(outputStream);
+        geometryWriter = new PBGeometryWriterVS(options);
+        if (options.isSpatialIndex()) {
+            indexNodeSize = options.getIndexNodeSize();
+            records = new ArrayList<>();
+            boxes = new double[4 * offsets.length];
+        }
+        byte[] header = IndexedContainer.createHeader();
+        codedOutput.writeRawBytes(header);
+        this.position = position + header.length;
+    }
+
+    public void serialize(Object jtsGeometry) throws IOException {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            if (boxes != null) {
+                boxes = Arrays.copyOf(boxes, 4 * offsets.length);
+            }
+        }
+        if (records == null) {
+            offsets[count++] = position;
+            position += geometryWriter.writeDelimited(jtsGeometry, codedOutput);
+            return;
+        }
+        int size = geometryWriter.computeSize(jtsGeometry);
+        byte[] record = new byte[CodedOutputStream.computeUInt32SizeNoTag(size) + size];
+        CodedOutputStream recordOutput = CodedOutputStream.newInstance(record);
+        geometryWriter.writeDelimited(jtsGeometry, recordOutput);
+        recordOutput.checkNoSpaceLeft();
+        records.add(record);
+        Envelope envelope = GeometryEnvelopesVS.getEnvelope(jtsGeometry);
+        if (envelope.isNull()) {
+            Arrays.fill(boxes, 4 * count, 4 * count + 2, Double.POSITIVE_INFINITY);
+            Arrays.fill(boxes, 4 * count + 2, 4 * count + 4, Double.NEGATIVE_INFINITY);
+        } else {
+            boxes[4 * count] = envelope.getMinX();
+            boxes[4 * count + 1] = envelope.getMinY();
+            boxes[4 * count + 2] = envelope.getMaxX();
+            boxes[4 * count + 3] = envelope.getMaxY();
+        }
+        count++;
+    }
+
+    public void close() throws IOException {
+        byte[] spatialIndex = null;
+        if (records != null && count > 0) {
+            int[] order = PackedRTree.sortByHilbert(boxes, count);
+            double[] sortedBoxes = new double[4 * count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = position;
+                codedOutput.writeRawBytes(records.get(order[i]));
+                position += records.get(order[i]).length;
+                records.set(order[i], null);
+                System.arraycopy(boxes, 4 * order[i], sortedBoxes, 4 * i, 4);
+            }
+            spatialIndex = PackedRTree.create(sortedBoxes, count, indexNodeSize);
+        }
+        codedOutput.writeRawBytes(IndexedContainer.createFooter(offsets, count, position,
+                spatialIndex));
+        codedOutput.flush();
+        output.close();
+    }
+}
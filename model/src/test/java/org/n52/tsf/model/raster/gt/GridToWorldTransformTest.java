@@ -0,0 +1,64 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.raster.gt;
+
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.geometry.Envelope2D;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.referencing.operation.matrix.GeneralMatrix;
+import org.geotools.referencing.operation.transform.ProjectiveTransform;
+import org.junit.Test;
+import org.opengis.referencing.datum.PixelInCell;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GridToWorldTransformTest {
+
+    @Test
+    public void testNonAffineGridPointsMatchGridGeometry() throws Exception {
+        GeneralMatrix matrix = new GeneralMatrix(3);
+        matrix.setElement(0, 0, 0.5);
+        matrix.setElement(0, 2, 7.0);
+        matrix.setElement(1, 1, -0.5);
+        matrix.setElement(1, 2, 52.0);
+        matrix.setElement(2, 0, 0.001);
+        GridGeometry2D geometry = new GridGeometry2D(new GridEnvelope2D(0, 0, 20, 10), PixelInCell.CELL_CORNER,
+                ProjectiveTransform.create(matrix), DefaultGeographicCRS.WGS84, null);
+        assertNull(GridToWorldTransform.getAffineTransform(geometry));
+
+        int width = geometry.getGridRange2D().width;
+        int height = geometry.getGridRange2D().height;
+        List<double[]> gridPoints = new ArrayList<>();
+        GridToWorldTransform.transform(geometry, width, height,
+                (latitude, longitude) -> gridPoints.add(new double[]{latitude, longitude}));
+        assertEquals(width * height, gridPoints.size());
+        for (int k = 0; k < gridPoints.size(); k++) {
+            Envelope2D pixelEnvelope = geometry.gridToWorld(new GridEnvelope2D(k / height, k % height, 1, 1));
+            assertEquals(Double.doubleToLongBits(pixelEnvelope.getCenterX()), Double.doubleToLongBits(gridPoints.get(k)[0]));
+            assertEquals(Double.doubleToLongBits(pixelEnvelope.getCenterY()), Double.doubleToLongBits(gridPoints.get(k)[1]));
+        }
+    }
+}
@@ -20,28 +20,44 @@
 package org.n52.tsf.model.raster.gt.test;
 
 import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.GridFormatFinder;
+import org.geotools.geometry.Envelope2D;
 import org.geotools.referencing.CRS;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.n52.tsf.model.OverviewResampling;
+import org.n52.tsf.model.SerializationOptions;
 import org.n52.tsf.model.raster.gt.AvroCovDataDeserializationHandler;
+import org.n52.tsf.model.raster.gt.CRSCache;
 import org.n52.tsf.model.raster.gt.AvroCovDataSerializationHandler;
 import org.n52.tsf.model.raster.gt.PBCovDataDeserializationHandler;
 import org.n52.tsf.model.raster.gt.PBCovDataSerializationHandler;
+import org.n52.tsf.model.raster.gt.TiledCoverageReader;
 import org.n52.tsf.model.raster.gt.beans.GeoPoint;
 import org.n52.tsf.model.vector.jts.test.Utils;
 import org.opengis.coverage.grid.GridCoordinates;
 import org.opengis.coverage.grid.GridEnvelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class GTModelCovDataTest {
@@ -137,6 +153,312 @@ public class GTModelCovDataTest {
         System.out.println("Successfully Deserialized....");
     }
 
+    @Test
+    public void testGridPointsMatchGridGeometry() throws Exception {
+        ClassLoader classLoader = GTModelCovDataTest.class.getClassLoader();
+        //source geo.tiff - https://github.com/geotools/geotools/tree/master/modules/plugin/geotiff/src/test/resources/org/geotools/gce/geotiff/test-data
+        File tifFile = new File(classLoader.getResource("geotif/geo.tiff").getFile());
+        GridCoverage2D coverage = GridFormatFinder.findFormat(tifFile).getReader(tifFile).read(null);
+        GridGeometry2D geometry = coverage.getGridGeometry();
+        FileOutputStream output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new PBCovDataSerializationHandler().serialize(tifFile, output, false);
+        } finally {
+            output.close();
+        }
+        List<GeoPoint> geoPoints = new PBCovDataDeserializationHandler().deserializeToWorld(new FileInputStream(Utils.TEST_FILE_LOCATION));
+        assertGeoPointsEqual(geoPoints, new PBCovDataDeserializationHandler().deserializeToWorld(Paths.get(Utils.TEST_FILE_LOCATION)));
+        int height = geometry.getGridRange2D().height;
+        for (int k = 0; k < geoPoints.size(); k++) {
+            Envelope2D pixelEnvelope = geometry.gridToWorld(new GridEnvelope2D(k / height, k % height, 1, 1));
+            assertEquals(Double.doubleToLongBits(pixelEnvelope.getCenterX()), Double.doubleToLongBits(geoPoints.get(k).getLatitude()));
+            assertEquals(Double.doubleToLongBits(pixelEnvelope.getCenterY()), Double.doubleToLongBits(geoPoints.get(k).getLongitude()));
+        }
+    }
+
+    @Test
+    public void testImplicitGridPoints() throws Exception {
+        ClassLoader classLoader = GTModelCovDataTest.class.getClassLoader();
+        //source geo.tiff - https://github.com/geotools/geotools/tree/master/modules/plugin/geotiff/src/test/resources/org/geotools/gce/geotiff/test-data
+        File tifFile = new File(classLoader.getResource("geotif/geo.tiff").getFile());
+        SerializationOptions options = new SerializationOptions();
+        options.setImplicitGridPoints(true);
+
+        System.out.println("-------------- Serializing Geotif grid points implicitly via Protobuf -------------------------");
+        FileOutputStream output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new PBCovDataSerializationHandler().serialize(tifFile, output, false);
+        } finally {
+            output.close();
+        }
+        List<GeoPoint> geoPoints = new PBCovDataDeserializationHandler().deserializeToWorld(new FileInputStream(Utils.TEST_FILE_LOCATION));
+        output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new PBCovDataSerializationHandler(options).serialize(tifFile, output, false);
+        } finally {
+            output.close();
+        }
+        assertTrue(new File(Utils.TEST_FILE_LOCATION).length() < 1024);
+        assertGeoPointsEqual(geoPoints, new PBCovDataDeserializationHandler().deserializeToWorld(new FileInputStream(Utils.TEST_FILE_LOCATION)));
+
+        System.out.println("-------------- Serializing Geotif grid points implicitly via Avro -------------------------");
+        output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new AvroCovDataSerializationHandler(options).serialize(tifFile, output, false);
+        } finally {
+            output.close();
+        }
+        assertTrue(new File(Utils.TEST_FILE_LOCATION).length() < 1024);
+        assertGeoPointsEqual(geoPoints, new AvroCovDataDeserializationHandler().deserializeToWorld(new FileInputStream(Utils.TEST_FILE_LOCATION)));
+    }
+
+    @Test
+    public void testStreamingGridPoints() throws Exception {
+        ClassLoader classLoader = GTModelCovDataTest.class.getClassLoader();
+        //source geo.tiff - https://github.com/geotools/geotools/tree/master/modules/plugin/geotiff/src/test/resources/org/geotools/gce/geotiff/test-data
+        File tifFile = new File(classLoader.getResource("geotif/geo.tiff").getFile());
+        FileOutputStream output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new PBCovDataSerializationHandler().serialize(tifFile, output, false);
+        } finally {
+            output.close();
+        }
+        List<GeoPoint> geoPoints = new PBCovDataDeserializationHandler().deserializeToWorld(new FileInputStream(Utils.TEST_FILE_LOCATION));
+
+        System.out.println("-------------- Streaming Geotif grid points via Protobuf -------------------------");
+        output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new PBCovDataSerializationHandler().serializeStreaming(tifFile, output);
+        } finally {
+            output.close();
+        }
+        List<GeoPoint> streamedPoints = new ArrayList<>();
+        try (FileInputStream input = new FileInputStream(Utils.TEST_FILE_LOCATION)) {
+            assertEquals(geoPoints.size(), new PBCovDataDeserializationHandler().deserializeStreamingToWorld(input, streamedPoints::add));
+        }
+        assertGeoPointsEqual(geoPoints, streamedPoints);
+
+        System.out.println("-------------- Streaming Geotif grid points via Avro -------------------------");
+        output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new AvroCovDataSerializationHandler().serializeStreaming(tifFile, output);
+        } finally {
+            output.close();
+        }
+        streamedPoints.clear();
+        try (FileInputStream input = new FileInputStream(Utils.TEST_FILE_LOCATION)) {
+            assertEquals(geoPoints.size(), new AvroCovDataDeserializationHandler().deserializeStreamingToWorld(input, streamedPoints::add));
+        }
+        assertGeoPointsEqual(geoPoints, streamedPoints);
+    }
+
+    @Test
+    public void testSampleData() throws Exception {
+        ClassLoader classLoader = GTModelCovDataTest.class.getClassLoader();
+        //source geo.tiff - https://github.com/geotools/geotools/tree/master/modules/plugin/geotiff/src/test/resources/org/geotools/gce/geotiff/test-data
+        File tifFile = new File(classLoader.getResource("geotif/geo.tiff").getFile());
+        Raster expected = GridFormatFinder.findFormat(tifFile).getReader(tifFile).read(null).getRenderedImage().getData();
+        SerializationOptions options = new SerializationOptions();
+        options.setSampleData(true);
+
+        System.out.println("-------------- Serializing Geotif sample data via Protobuf -------------------------");
+        FileOutputStream output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new PBCovDataSerializationHandler(options).serialize(tifFile, output, true);
+        } finally {
+            output.close();
+        }
+        GridCoverage2D gridCoverage = new PBCovDataDeserializationHandler().deserialize("testgeotif", new FileInputStream(Utils.TEST_FILE_LOCATION));
+        assertSamplesEqual(expected, gridCoverage.getRenderedImage().getData());
+
+        System.out.println("-------------- Serializing Geotif sample data via Avro -------------------------");
+        output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new AvroCovDataSerializationHandler(options).serialize(tifFile, output, true);
+        } finally {
+            output.close();
+        }
+        gridCoverage = new AvroCovDataDeserializationHandler().deserialize("testgeotif", new FileInputStream(Utils.TEST_FILE_LOCATION));
+        assertSamplesEqual(expected, gridCoverage.getRenderedImage().getData());
+    }
+
+    @Test
+    public void testTiledWindowReads() throws Exception {
+        ClassLoader classLoader = GTModelCovDataTest.class.getClassLoader();
+        //source geo.tiff - https://github.com/geotools/geotools/tree/master/modules/plugin/geotiff/src/test/resources/org/geotools/gce/geotiff/test-data
+        File tifFile = new File(classLoader.getResource("geotif/geo.tiff").getFile());
+        GridCoverage2D coverage = GridFormatFinder.findFormat(tifFile).getReader(tifFile).read(null);
+        Raster expected = coverage.getRenderedImage().getData();
+        SerializationOptions options = new SerializationOptions();
+        options.setTileSize(50);
+        GridEnvelope2D window = new GridEnvelope2D(30, 40, 60, 50);
+
+        System.out.println("-------------- Serializing Geotif tiles via Protobuf -------------------------");
+        FileOutputStream output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new PBCovDataSerializationHandler(options).serializeTiled(tifFile, output);
+        } finally {
+            output.close();
+        }
+        assertTiledWindows(expected, window);
+
+        System.out.println("-------------- Serializing Geotif tiles via Avro -------------------------");
+        output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new AvroCovDataSerializationHandler(options).serializeTiled(tifFile, output);
+        } finally {
+            output.close();
+        }
+        assertTiledWindows(expected, window);
+    }
+
+    @Test
+    public void testTiledOverviews() throws Exception {
+        ClassLoader classLoader = GTModelCovDataTest.class.getClassLoader();
+        //source geo.tiff - https://github.com/geotools/geotools/tree/master/modules/plugin/geotiff/src/test/resources/org/geotools/gce/geotiff/test-data
+        File tifFile = new File(classLoader.getResource("geotif/geo.tiff").getFile());
+        GridCoverage2D coverage = GridFormatFinder.findFormat(tifFile).getReader(tifFile).read(null);
+        Raster expected = coverage.getRenderedImage().getData();
+        SerializationOptions options = new SerializationOptions();
+        options.setTileSize(50);
+        options.setOverviewLevels(2);
+
+        System.out.println("-------------- Serializing Geotif overviews via Protobuf -------------------------");
+        FileOutputStream output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new PBCovDataSerializationHandler(options).serializeTiled(tifFile, output);
+        } finally {
+            output.close();
+        }
+        try (TiledCoverageReader reader = new TiledCoverageReader(Paths.get(Utils.TEST_FILE_LOCATION))) {
+            assertEquals(3, reader.getLevelCount());
+            assertEquals(new GridEnvelope2D(0, 0, 60, 60), reader.getGridRange(1));
+            assertEquals(new GridEnvelope2D(0, 0, 30, 30), reader.getGridRange(2));
+            Raster overview = reader.readRaster(1, reader.getGridRange(1));
+            for (int y = 0; y < 60; y++) {
+                for (int x = 0; x < 60; x++) {
+                    assertEquals(expected.getSampleDouble(2 * x + 1, 2 * y + 1, 0), overview.getSampleDouble(x, y, 0), 0);
+                }
+            }
+            double resolution = reader.getResolution();
+            assertEquals(0, reader.selectLevel(resolution / 2));
+            assertEquals(0, reader.selectLevel(resolution * 1.5));
+            assertEquals(1, reader.selectLevel(resolution * 2));
+            assertEquals(2, reader.selectLevel(resolution * 100));
+            GridCoverage2D windowCoverage = reader.readWindow(new GridEnvelope2D(30, 40, 60, 50), resolution * 4);
+            assertEquals(16, windowCoverage.getRenderedImage().getWidth());
+            assertEquals(13, windowCoverage.getRenderedImage().getHeight());
+        }
+
+        System.out.println("-------------- Serializing Geotif overviews via Avro -------------------------");
+        options.setOverviewResampling(OverviewResampling.AVERAGE);
+        output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new AvroCovDataSerializationHandler(options).serializeTiled(tifFile, output);
+        } finally {
+            output.close();
+        }
+        try (TiledCoverageReader reader = new TiledCoverageReader(Paths.get(Utils.TEST_FILE_LOCATION))) {
+            assertEquals(3, reader.getLevelCount());
+            assertSamplesEqual(expected, reader.readRaster(reader.getGridRange()));
+            Raster overview = reader.readRaster(2, reader.getGridRange(2));
+            for (int y = 0; y < 30; y++) {
+                for (int x = 0; x < 30; x++) {
+                    double[] block = expected.getSamples(4 * x, 4 * y, 4, 4, 0, (double[]) null);
+                    Arrays.sort(block);
+                    double value = overview.getSampleDouble(x, y, 0);
+                    assertTrue(value >= block[0] && value <= block[block.length - 1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelTileEncoding() throws Exception {
+        ClassLoader classLoader = GTModelCovDataTest.class.getClassLoader();
+        //source geo.tiff - https://github.com/geotools/geotools/tree/master/modules/plugin/geotiff/src/test/resources/org/geotools/gce/geotiff/test-data
+        File tifFile = new File(classLoader.getResource("geotif/geo.tiff").getFile());
+        GridCoverage2D coverage = GridFormatFinder.findFormat(tifFile).getReader(tifFile).read(null);
+        Raster expected = coverage.getRenderedImage().getData();
+        SerializationOptions options = new SerializationOptions();
+        options.setTileSize(20);
+        options.setOverviewLevels(2);
+
+        System.out.println("-------------- Serializing Geotif tiles in parallel via Protobuf -------------------------");
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        new PBCovDataSerializationHandler(options).serializeTiled(tifFile, sequential);
+        options.setParallelism(4);
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        new PBCovDataSerializationHandler(options).serializeTiled(tifFile, parallel);
+        assertArrayEquals(sequential.toByteArray(), parallel.toByteArray());
+
+        System.out.println("-------------- Serializing compressed Geotif tiles in parallel via Avro -------------------------");
+        options.setCompressedTiles(true);
+        options.setTileExecutor(ForkJoinPool.commonPool());
+        FileOutputStream output = new FileOutputStream(Utils.TEST_FILE_LOCATION);
+        try {
+            new AvroCovDataSerializationHandler(options).serializeTiled(tifFile, output);
+        } finally {
+            output.close();
+        }
+        assertTiledWindows(expected, new GridEnvelope2D(30, 40, 60, 50));
+    }
+
+    @Test
+    public void testCRSCache() throws Exception {
+        CRSCache cache = new CRSCache(2);
+        CoordinateReferenceSystem crs = cache.decode("EPSG:4301");
+        assertSame(crs, cache.decode("EPSG:4301"));
+        assertEquals("EPSG:4301", cache.lookupIdentifier(crs));
+        assertEquals("EPSG:4301", cache.lookupIdentifier(crs));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        cache.decode("EPSG:4326");
+        cache.decode("EPSG:3857");
+        cache.decode("EPSG:4301");
+        assertEquals(2, cache.getHitCount());
+        assertEquals(5, cache.getMissCount());
+        cache.clear();
+        assertEquals(0, cache.getMissCount());
+    }
+
+    private void assertTiledWindows(Raster expected, GridEnvelope2D window) throws Exception {
+        for (boolean memoryMapped : new boolean[]{false, true}) {
+            try (TiledCoverageReader reader = new TiledCoverageReader(Paths.get(Utils.TEST_FILE_LOCATION), memoryMapped)) {
+                assertEquals(new GridEnvelope2D(0, 0, 120, 120), reader.getGridRange());
+                assertSamplesEqual(expected, reader.readRaster(reader.getGridRange()));
+                assertSamplesEqual(expected.createChild(window.x, window.y, window.width, window.height, 0, 0, null),
+                        reader.readRaster(window));
+                GridCoverage2D windowCoverage = reader.readWindow(window);
+                assertEquals(window.width, windowCoverage.getRenderedImage().getWidth());
+                assertEquals("EPSG:4301", CRS.lookupIdentifier(windowCoverage.getCoordinateReferenceSystem(), true));
+            }
+        }
+    }
+
+    private void assertSamplesEqual(Raster expected, Raster actual) {
+        assertEquals(expected.getNumBands(), actual.getNumBands());
+        assertEquals(expected.getTransferType(), actual.getTransferType());
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int band = 0; band < expected.getNumBands(); band++) {
+            double[] expectedSamples = expected.getSamples(expected.getMinX(), expected.getMinY(), expected.getWidth(),
+                    expected.getHeight(), band, (double[]) null);
+            double[] actualSamples = actual.getSamples(actual.getMinX(), actual.getMinY(), actual.getWidth(),
+                    actual.getHeight(), band, (double[]) null);
+            assertArrayEquals(expectedSamples, actualSamples, 0);
+        }
+    }
+
+    private void assertGeoPointsEqual(List<GeoPoint> expected, List<GeoPoint> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(Double.doubleToLongBits(expected.get(i).getLatitude()), Double.doubleToLongBits(actual.get(i).getLatitude()));
+            assertEquals(Double.doubleToLongBits(expected.get(i).getLongitude()), Double.doubleToLongBits(actual.get(i).getLongitude()));
+        }
+    }
+
     @Test
     public void testDeserializeGeoTifWithMetaData() throws Exception {
         ClassLoader classLoader = GTModelCovDataTest.class.getClassLoader();
@@ -0,0 +1,194 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.locationtech;
+
+import org.locationtech.jts.geom.*;
+import org.n52.tsf.model.vector.WorkloadType;
+
+import java.util.Random;
+
+/**
+ * Creates reproducible synthetic geometries for benchmarks and tests. Every call starts from the seed of the
+ * generator, so a generator creates the same coordinates for the same arguments on any machine. Coordinates
+ * are written straight into sequences of the geometry factory; use a PackedCoordinateSequenceFactory for
+ * workloads with millions of vertices.
+ */
+public class GeometryGeneratorLT {
+    public static final long DEFAULT_SEED = 52L;
+    public static final int DEFAULT_COLLECTION_DEPTH = 16;
+    // vertices of each hole of POLYGON_WITH_HOLES and of each part of MULTIPOLYGON
+    private static final int RING_VERTICES = 32;
+    private static final int MIN_RING_VERTICES = 4;
+    private static final double CENTER_X = 7.6;
+    private static final double CENTER_Y = 51.9;
+    private static final double RADIUS = 0.5;
+    private static final double STEP = 1e-4;
+
+    private final long seed;
+    private final GeometryFactory geometryFactory;
+
+    public GeometryGeneratorLT() {
+        this(DEFAULT_SEED, new GeometryFactory());
+    }
+
+    public GeometryGeneratorLT(long seed, GeometryFactory geometryFactory) {
+        this.seed = seed;
+        this.geometryFactory = geometryFactory;
+    }
+
+    /**
+     * @return a geometry of the given workload with about vertexCount vertices in total
+     */
+    public Geometry create(WorkloadType workloadType, int vertexCount) {
+        switch (workloadType) {
+            case POINTS:
+                return createMultiPoint(vertexCount);
+            case LINESTRING:
+                return createLineString(vertexCount);
+            case POLYGON_WITH_HOLES: {
+                int shellVertices = Math.max(MIN_RING_VERTICES, vertexCount / 2);
+                return createPolygon(shellVertices, Math.max(0, vertexCount - shellVertices) / RING_VERTICES);
+            }
+            case NESTED_COLLECTION:
+                return createNestedCollection(DEFAULT_COLLECTION_DEPTH, vertexCount);
+            case MULTIPOLYGON:
+                return createMultiPolygon(Math.max(1, vertexCount / RING_VERTICES), RING_VERTICES);
+            default:
+                throw new IllegalArgumentException("Unsupported workload type " + workloadType);
+        }
+    }
+
+    public MultiPoint createMultiPoint(int pointCount) {
+        checkCount("point count", pointCount, 1);
+        Random random = new Random(seed);
+        Point[] points = new Point[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            CoordinateSequence sequence = geometryFactory.getCoordinateSequenceFactory().create(1, 2);
+            sequence.setOrdinate(0, CoordinateSequence.X, CENTER_X + (random.nextDouble() - 0.5) * 2 * RADIUS);
+            sequence.setOrdinate(0, CoordinateSequence.Y, CENTER_Y + (random.nextDouble() - 0.5) * 2 * RADIUS);
+            points[i] = geometryFactory.createPoint(sequence);
+        }
+        return geometryFactory.createMultiPoint(points);
+    }
+
+    /**
+     * @return a random walk of vertexCount vertices
+     */
+    public LineString createLineString(int vertexCount) {
+        checkCount("vertex count", vertexCount, 2);
+        return createLineString(new Random(seed), vertexCount);
+    }
+
+    /**
+     * @return a star shaped polygon with holeCount holes of {@value #RING_VERTICES} vertices laid out on a grid
+     * inside the shell
+     */
+    public Polygon createPolygon(int shellVertexCount, int holeCount) {
+        checkCount("shell vertex count", shellVertexCount, MIN_RING_VERTICES);
+        checkCount("hole count", holeCount, 0);
+        Random random = new Random(seed);
+        LinearRing shell = createRing(random, CENTER_X, CENTER_Y, RADIUS, shellVertexCount);
+        LinearRing[] holes = new LinearRing[holeCount];
+        if (holeCount > 0) {
+            // the square of the holes stays inside the shell, whose radius is at least 0.9 * RADIUS
+            double side = 1.2 * RADIUS;
+            int cellsPerSide = (int) Math.ceil(Math.sqrt(holeCount));
+            double cellSize = side / cellsPerSide;
+            for (int i = 0; i < holeCount; i++) {
+                double centerX = CENTER_X - side / 2 + (i % cellsPerSide + 0.5) * cellSize;
+                double centerY = CENTER_Y - side / 2 + (i / cellsPerSide + 0.5) * cellSize;
+                holes[i] = createRing(random, centerX, centerY, 0.4 * cellSize, RING_VERTICES);
+            }
+        }
+        return geometryFactory.createPolygon(shell, holes);
+    }
+
+    /**
+     * @return partCount disjoint polygons laid out on a grid
+     */
+    public MultiPolygon createMultiPolygon(int partCount, int verticesPerPart) {
+        checkCount("part count", partCount, 1);
+        checkCount("vertices per part", verticesPerPart, MIN_RING_VERTICES);
+        Random random = new Random(seed);
+        int cellsPerSide = (int) Math.ceil(Math.sqrt(partCount));
+        double cellSize = 2 * RADIUS / cellsPerSide;
+        Polygon[] polygons = new Polygon[partCount];
+        for (int i = 0; i < partCount; i++) {
+            double centerX = CENTER_X - RADIUS + (i % cellsPerSide + 0.5) * cellSize;
+            double centerY = CENTER_Y - RADIUS + (i / cellsPerSide + 0.5) * cellSize;
+            polygons[i] = geometryFactory.createPolygon(createRing(random, centerX, centerY, 0.4 * cellSize, verticesPerPart));
+        }
+        return geometryFactory.createMultiPolygon(polygons);
+    }
+
+    /**
+     * @return depth collections nested into each other, each holding a point, a linestring and the next level;
+     * the innermost level holds a polygon. The vertices are shared evenly between the levels.
+     */
+    public GeometryCollection createNestedCollection(int depth, int vertexCount) {
+        checkCount("depth", depth, 1);
+        checkCount("vertex count", vertexCount, 1);
+        Random random = new Random(seed);
+        int levelVertices = Math.max(MIN_RING_VERTICES, vertexCount / depth);
+        GeometryCollection collection = geometryFactory.createGeometryCollection(new Geometry[]{
+                geometryFactory.createPolygon(createRing(random, CENTER_X, CENTER_Y, RADIUS, levelVertices))});
+        for (int level = 1; level < depth; level++) {
+            LineString lineString = createLineString(random, Math.max(2, levelVertices - 1));
+            collection = geometryFactory.createGeometryCollection(new Geometry[]{
+                    lineString.getStartPoint(), lineString, collection});
+        }
+        return collection;
+    }
+
+    private LineString createLineString(Random random, int vertexCount) {
+        CoordinateSequence sequence = geometryFactory.getCoordinateSequenceFactory().create(vertexCount, 2);
+        double x = CENTER_X;
+        double y = CENTER_Y;
+        for (int i = 0; i < vertexCount; i++) {
+            x += (random.nextDouble() - 0.5) * STEP;
+            y += (random.nextDouble() - 0.5) * STEP;
+            sequence.setOrdinate(i, CoordinateSequence.X, x);
+            sequence.setOrdinate(i, CoordinateSequence.Y, y);
+        }
+        return geometryFactory.createLineString(sequence);
+    }
+
+    // a closed ring around the center whose radius varies between 0.9 and 1 times the given radius
+    private LinearRing createRing(Random random, double centerX, double centerY, double radius, int vertexCount) {
+        CoordinateSequence sequence = geometryFactory.getCoordinateSequenceFactory().create(vertexCount, 2);
+        int last = vertexCount - 1;
+        for (int i = 0; i < last; i++) {
+            double angle = 2 * Math.PI * i / last;
+            double distance = radius * (0.9 + 0.1 * random.nextDouble());
+            sequence.setOrdinate(i, CoordinateSequence.X, centerX + distance * Math.cos(angle));
+            sequence.setOrdinate(i, CoordinateSequence.Y, centerY + distance * Math.sin(angle));
+        }
+        sequence.setOrdinate(last, CoordinateSequence.X, sequence.getOrdinate(0, CoordinateSequence.X));
+        sequence.setOrdinate(last, CoordinateSequence.Y, sequence.getOrdinate(0, CoordinateSequence.Y));
+        return geometryFactory.createLinearRing(sequence);
+    }
+
+    private static void checkCount(String name, int count, int minimum) {
+        if (count < minimum) {
+            throw new IllegalArgumentException("The " + name + " must be at least " + minimum + " but was " + count);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.locationtech;
+
+import com.google.protobuf.CodedInputStream;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.n52.tsf.model.SerializationOptions;
+import org.n52.tsf.model.vector.IndexedContainer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PBIndexedSerializationHandlerLTTest {
+
+    private static final long POSITION = 3L << 30;
+
+    @Test
+    public void testOffsetsAbove2GiB() throws Exception {
+        for (boolean spatialIndex : new boolean[]{false, true}) {
+            SerializationOptions options = new SerializationOptions();
+            options.setSpatialIndex(spatialIndex);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            PBIndexedSerializationHandlerLT serializer = new PBIndexedSerializationHandlerLT(output, options, POSITION);
+            GeometryGeneratorLT generator = new GeometryGeneratorLT();
+            Geometry[] geometries = new Geometry[]{generator.createLineString(100), generator.createPolygon(100, 2)};
+            for (Geometry geometry : geometries) {
+                serializer.serialize(geometry);
+            }
+            serializer.close();
+
+            ByteBuffer container = ByteBuffer.wrap(output.toByteArray());
+            int trailer = container.limit() - IndexedContainer.TRAILER_SIZE;
+            assertEquals(geometries.length, container.getLong(trailer));
+            long indexOffset = container.getLong(trailer + 8);
+            assertTrue(indexOffset > Integer.MAX_VALUE);
+            long end = POSITION + IndexedContainer.HEADER_SIZE;
+            for (int i = 0; i < geometries.length; i++) {
+                long offset = container.getLong((int) (indexOffset - POSITION) + 8 * i);
+                assertEquals(end, offset);
+                CodedInputStream input = CodedInputStream.newInstance(container.array(), (int) (offset - POSITION),
+                        (int) (indexOffset - offset));
+                end = offset + input.readRawVarint32() + input.getTotalBytesRead();
+            }
+            assertEquals(end, indexOffset);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.test;
+
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.*;
+import org.n52.tsf.model.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JTSModelAvroCodecTest {
+
+    @Before
+    public void setUp() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.createFile(filePath);
+    }
+
+    @Test
+    public void testAvroCodecs() throws Exception {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        MultiPoint multiPoint = geometryFactory.createMultiPoint(new Coordinate[]{
+                new Coordinate(7.62, 51.96), new Coordinate(7.63, 51.96), new Coordinate(7.64, 51.96)});
+        long uncompressedSize = 0;
+        for (String codec : new String[]{DataFileConstants.NULL_CODEC, DataFileConstants.DEFLATE_CODEC,
+                DataFileConstants.SNAPPY_CODEC, DataFileConstants.XZ_CODEC}) {
+            SerializationOptions options = new SerializationOptions();
+            options.setAvroCodec(codec, DataFileConstants.DEFLATE_CODEC.equals(codec) ? 9 : SerializationOptions.DEFAULT_CODEC_LEVEL);
+            options.setAvroSyncInterval(1 << 16);
+            options.setAvroFlushOnEveryBlock(false);
+            System.out.println("-------------- Serializing JTS Model MultiPoint via Avro with " + codec + " codec -------------------------");
+            SerializationHandler avroSerializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.AVRO_SERIALIZER_LT, options);
+            for (int i = 0; i < 100; i++) {
+                avroSerializer.serialize(multiPoint);
+            }
+            avroSerializer.close();
+            long size = new File(Utils.TEST_FILE_LOCATION).length();
+            if (DataFileConstants.NULL_CODEC.equals(codec)) {
+                uncompressedSize = size;
+            } else {
+                assertTrue(size < uncompressedSize);
+            }
+
+            DataFileStream<GenericRecord> dataFileStream = new DataFileStream<>(new FileInputStream(Utils.TEST_FILE_LOCATION), new GenericDatumReader<>());
+            assertEquals(codec, dataFileStream.getMetaString(DataFileConstants.CODEC));
+            dataFileStream.close();
+
+            System.out.println("-------------- Deserializing JTS Model MultiPoint via Avro with " + codec + " codec -------------------------");
+            DeserializationHandler avroDeserializer = DeserializationFactory.createDeserializer(new FileInputStream(Utils.TEST_FILE_LOCATION), DeserializerType.AVRO_DESERIALIZER_LT);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(multiPoint, avroDeserializer.deserialize());
+            }
+            avroDeserializer.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedCodec() {
+        new SerializationOptions().setAvroCodec("zstandard");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.deleteIfExists(filePath);
+    }
+}
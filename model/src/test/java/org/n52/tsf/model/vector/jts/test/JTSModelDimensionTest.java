@@ -0,0 +1,137 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.n52.tsf.model.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JTSModelDimensionTest {
+
+    private static final double SCALE = 1e3;
+
+    @Before
+    public void setUp() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.createFile(filePath);
+    }
+
+    @Test
+    public void testTwoDimensionalCoordinates() throws Exception {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        LineString lineString = geometryFactory.createLineString(new Coordinate[]{
+                new Coordinate(7.125, 51.5), new Coordinate(7.25, 51.625), new Coordinate(7.375, 51.75)});
+        System.out.println("-------------- Serializing JTS Model 2D LineString via Protobuf -------------------------");
+        for (SerializationOptions options : createOptions()) {
+            LineString lineStringDeserialized = (LineString) roundTrip(lineString, SerializerType.PROTOBUF_SERIALIZER_LT,
+                    DeserializerType.PROTOBUF_DESERIALIZER_LT, options);
+            assertEquals(2, lineStringDeserialized.getCoordinateSequence().getDimension());
+            assertTrue(lineString.equalsExact(lineStringDeserialized));
+        }
+        long packedSize = new File(Utils.TEST_FILE_LOCATION).length();
+        assertTrue(packedSize < 3 * 3 * 8);
+        System.out.println("-------------- Serializing JTS Model 2D LineString via Avro -------------------------");
+        LineString lineStringDeserialized = (LineString) roundTrip(lineString, SerializerType.AVRO_SERIALIZER_LT,
+                DeserializerType.AVRO_DESERIALIZER_LT, new SerializationOptions());
+        assertEquals(2, lineStringDeserialized.getCoordinateSequence().getDimension());
+        assertTrue(lineString.equalsExact(lineStringDeserialized));
+    }
+
+    @Test
+    public void testMeasuredCoordinates() throws Exception {
+        for (int dimension : new int[]{3, 4}) {
+            for (boolean hasZ : new boolean[]{true, false}) {
+                LineString lineString = createLineString(dimension, hasZ);
+                for (SerializationOptions options : createOptions()) {
+                    assertOrdinatesEqual(lineString, roundTrip(lineString, SerializerType.PROTOBUF_SERIALIZER_LT,
+                            DeserializerType.PROTOBUF_DESERIALIZER_LT, options));
+                    assertOrdinatesEqual(lineString, roundTrip(lineString, SerializerType.AVRO_SERIALIZER_LT,
+                            DeserializerType.AVRO_DESERIALIZER_LT, options));
+                }
+            }
+        }
+    }
+
+    private Object roundTrip(Geometry geometry, SerializerType serializerType, DeserializerType deserializerType,
+                             SerializationOptions options) throws Exception {
+        SerializationHandler serializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), serializerType, options);
+        serializer.serialize(geometry);
+        serializer.close();
+        DeserializationHandler deserializer = DeserializationFactory.createDeserializer(new FileInputStream(Utils.TEST_FILE_LOCATION), deserializerType);
+        Object geometryDeserialized = deserializer.deserialize();
+        deserializer.close();
+        System.out.println("Successfully Deserialized : " + geometryDeserialized);
+        return geometryDeserialized;
+    }
+
+    private void assertOrdinatesEqual(LineString expected, Object actual) {
+        CoordinateSequence expectedSequence = expected.getCoordinateSequence();
+        CoordinateSequence actualSequence = ((LineString) actual).getCoordinateSequence();
+        assertEquals(expectedSequence.size(), actualSequence.size());
+        for (int i = 0; i < expectedSequence.size(); i++) {
+            for (int ordinate = 0; ordinate < expectedSequence.getDimension(); ordinate++) {
+                double actualOrdinate = ordinate < actualSequence.getDimension() ? actualSequence.getOrdinate(i, ordinate) : Double.NaN;
+                assertEquals(expectedSequence.getOrdinate(i, ordinate), actualOrdinate, 1 / SCALE);
+            }
+        }
+    }
+
+    private SerializationOptions[] createOptions() {
+        SerializationOptions packed = new SerializationOptions();
+        packed.setPackedCoordinates(true);
+        SerializationOptions fixed = new SerializationOptions();
+        fixed.setPrecisionScale(SCALE);
+        return new SerializationOptions[]{new SerializationOptions(), packed, fixed};
+    }
+
+    private LineString createLineString(int dimension, boolean hasZ) {
+        GeometryFactory geometryFactory = new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+        CoordinateSequence sequence = geometryFactory.getCoordinateSequenceFactory().create(3, dimension);
+        for (int i = 0; i < sequence.size(); i++) {
+            sequence.setOrdinate(i, CoordinateSequence.X, 7.125 + i);
+            sequence.setOrdinate(i, CoordinateSequence.Y, 51.5 + i);
+            sequence.setOrdinate(i, CoordinateSequence.Z, hasZ ? 60.25 * i : Double.NaN);
+            if (dimension > 3) {
+                sequence.setOrdinate(i, CoordinateSequence.M, 0.5 * i + 1);
+            }
+        }
+        return geometryFactory.createLineString(sequence);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.deleteIfExists(filePath);
+    }
+}
@@ -0,0 +1,166 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.test;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.Test;
+import org.locationtech.jts.geom.*;
+import org.n52.tsf.model.DeserializationHandler;
+import org.n52.tsf.model.SerializationHandler;
+import org.n52.tsf.model.SerializationOptions;
+import org.n52.tsf.model.vector.jts.locationtech.AvroDeserializationHandlerLT;
+import org.n52.tsf.model.vector.jts.locationtech.AvroSerializationHandlerLT;
+import org.n52.tsf.model.vector.jts.locationtech.GeometryGeneratorLT;
+import org.n52.tsf.model.vector.jts.locationtech.PBDeserializationHandlerLT;
+import org.n52.tsf.model.vector.jts.locationtech.PBSerializationHandlerLT;
+import org.n52.tsf.serialization.protobuf.gen.GeoProtobuf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JTSModelDirectReaderTest {
+
+    @Test
+    public void testReadAllEncodings() throws Exception {
+        SerializationOptions packed = new SerializationOptions();
+        packed.setPackedCoordinates(true);
+        SerializationOptions fixed = new SerializationOptions();
+        fixed.setPrecisionScale(1e7);
+        for (SerializationOptions options : new SerializationOptions[]{new SerializationOptions(), packed, fixed}) {
+            Geometry[] geometries = createGeometries();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            SerializationHandler pbSerializer = new PBSerializationHandlerLT(output, options);
+            for (Geometry geometry : geometries) {
+                pbSerializer.serialize(geometry);
+            }
+            pbSerializer.close();
+
+            DeserializationHandler pbDeserializer = new PBDeserializationHandlerLT(new ByteArrayInputStream(output.toByteArray()));
+            for (Geometry geometry : geometries) {
+                Geometry geometryDeserialized = (Geometry) pbDeserializer.deserialize();
+                assertEquals(geometry.getGeometryType(), geometryDeserialized.getGeometryType());
+                assertTrue(geometry.equalsExact(geometryDeserialized, 1e-7));
+                assertEquals(geometry.getEnvelopeInternal(), geometryDeserialized.getEnvelopeInternal());
+            }
+            assertNull(pbDeserializer.deserialize());
+            pbDeserializer.close();
+        }
+    }
+
+    @Test
+    public void testEnvelopeFilter() throws Exception {
+        Geometry points = new GeometryGeneratorLT().createMultiPoint(200);
+        List<Geometry> geometries = new ArrayList<>();
+        for (int i = 0; i < points.getNumGeometries(); i++) {
+            geometries.add(points.getGeometryN(i).buffer(1 + i % 5));
+        }
+        Envelope filter = new Envelope(points.getEnvelopeInternal().centre());
+        filter.expandBy(points.getEnvelopeInternal().getWidth() / 8);
+        List<String> expected = new ArrayList<>();
+        for (Geometry geometry : geometries) {
+            if (filter.intersects(geometry.getEnvelopeInternal())) {
+                expected.add(geometry.toText());
+            }
+        }
+        assertFalse(expected.isEmpty());
+
+        for (boolean recordEnvelopes : new boolean[]{true, false}) {
+            SerializationOptions options = new SerializationOptions();
+            options.setRecordEnvelopes(recordEnvelopes);
+            ByteArrayOutputStream pbOutput = new ByteArrayOutputStream();
+            ByteArrayOutputStream avroOutput = new ByteArrayOutputStream();
+            SerializationHandler pbSerializer = new PBSerializationHandlerLT(pbOutput, options);
+            SerializationHandler avroSerializer = new AvroSerializationHandlerLT(avroOutput, options);
+            for (Geometry geometry : geometries) {
+                pbSerializer.serialize(geometry);
+                avroSerializer.serialize(geometry);
+            }
+            pbSerializer.close();
+            avroSerializer.close();
+
+            GeoProtobuf.Geometry pbGeometry = GeoProtobuf.Geometry.parseDelimitedFrom(new ByteArrayInputStream(pbOutput.toByteArray()));
+            assertEquals(recordEnvelopes, pbGeometry.hasEnvelope());
+            if (recordEnvelopes) {
+                assertEquals(geometries.get(0).getEnvelopeInternal().getMaxY(), pbGeometry.getEnvelope().getMaxY(), 0);
+            }
+
+            PBDeserializationHandlerLT pbDeserializer = new PBDeserializationHandlerLT(new ByteArrayInputStream(pbOutput.toByteArray()));
+            pbDeserializer.setFilter(filter);
+            AvroDeserializationHandlerLT avroDeserializer = new AvroDeserializationHandlerLT(new ByteArrayInputStream(avroOutput.toByteArray()));
+            avroDeserializer.setFilter(filter);
+            for (DeserializationHandler deserializer : new DeserializationHandler[]{pbDeserializer, avroDeserializer}) {
+                List<String> actual = new ArrayList<>();
+                for (Object geometry : deserializer) {
+                    actual.add(((Geometry) geometry).toText());
+                }
+                assertEquals(expected, actual);
+                deserializer.close();
+            }
+        }
+    }
+
+    @Test
+    public void testNestingLimit() throws Exception {
+        for (int depth : new int[]{50, 1000}) {
+            GeoProtobuf.Geometry pbGeometry = GeoProtobuf.Geometry.newBuilder()
+                    .setType(GeoProtobuf.Geometry.Type.POINT)
+                    .addCoordinates(GeoProtobuf.Coordinate.newBuilder().setX(7.6281).setY(51.9625)).build();
+            for (int i = 0; i < depth; i++) {
+                pbGeometry = GeoProtobuf.Geometry.newBuilder()
+                        .setType(GeoProtobuf.Geometry.Type.GEOMETRYCOLLECTION).addGeometries(pbGeometry).build();
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            pbGeometry.writeDelimitedTo(output);
+
+            DeserializationHandler deserializer = new PBDeserializationHandlerLT(new ByteArrayInputStream(output.toByteArray()));
+            try {
+                Geometry geometry = (Geometry) deserializer.deserialize();
+                assertEquals(50, depth);
+                assertEquals(7.6281, geometry.getCoordinate().x, 0);
+            } catch (InvalidProtocolBufferException e) {
+                assertEquals(1000, depth);
+            }
+            deserializer.close();
+        }
+    }
+
+    private Geometry[] createGeometries() {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Point point = geometryFactory.createPoint(new Coordinate(7.6281, 51.9625));
+        LineString lineString = geometryFactory.createLineString(new Coordinate[]{
+                new Coordinate(7.1, 51.2), new Coordinate(7.3, 51.4), new Coordinate(7.5, 51.3)});
+        LinearRing externalLR = geometryFactory.createLinearRing(new Coordinate[]{
+                new Coordinate(0, 0), new Coordinate(10.5, 0), new Coordinate(10.5, 10.5), new Coordinate(0, 10.5), new Coordinate(0, 0)});
+        LinearRing[] internalLRs = new LinearRing[]{geometryFactory.createLinearRing(new Coordinate[]{
+                new Coordinate(2.25, 2.25), new Coordinate(2.25, 3.75), new Coordinate(3.75, 3.75), new Coordinate(2.25, 2.25)})};
+        Polygon polygon = geometryFactory.createPolygon(externalLR, internalLRs);
+        GeometryCollection geoCollection = geometryFactory.createGeometryCollection(new Geometry[]{
+                point, lineString, polygon, geometryFactory.createMultiPoint(new Point[]{point, point})});
+        return new Geometry[]{point, lineString, polygon, geoCollection};
+    }
+}
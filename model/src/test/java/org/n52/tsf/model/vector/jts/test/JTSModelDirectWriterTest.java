@@ -0,0 +1,84 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.test;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.*;
+import org.n52.tsf.model.SerializationHandler;
+import org.n52.tsf.model.SerializationOptions;
+import org.n52.tsf.model.vector.jts.locationtech.PBSerializationHandlerLT;
+import org.n52.tsf.serialization.protobuf.gen.GeoProtobuf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class JTSModelDirectWriterTest {
+
+    @Test
+    public void testByteIdenticalOutput() throws Exception {
+        SerializationOptions packed = new SerializationOptions();
+        packed.setPackedCoordinates(true);
+        SerializationOptions fixed = new SerializationOptions();
+        fixed.setPrecisionScale(1e7);
+        for (SerializationOptions options : new SerializationOptions[]{new SerializationOptions(), packed, fixed}) {
+            assertByteIdentical(options, createGeometries());
+        }
+    }
+
+    private void assertByteIdentical(SerializationOptions options, Object[] geometries) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SerializationHandler pbSerializer = new PBSerializationHandlerLT(output, options);
+        for (Object geometry : geometries) {
+            pbSerializer.serialize(geometry);
+        }
+        pbSerializer.close();
+        byte[] written = output.toByteArray();
+
+        ByteArrayInputStream input = new ByteArrayInputStream(written);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < geometries.length; i++) {
+            GeoProtobuf.Geometry.parseDelimitedFrom(input).writeDelimitedTo(expected);
+        }
+        assertEquals(0, input.available());
+        assertArrayEquals(expected.toByteArray(), written);
+    }
+
+    private Object[] createGeometries() {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Point point = geometryFactory.createPoint(new Coordinate(7.62, 51.96));
+        LineString lineString = geometryFactory.createLineString(new Coordinate[]{
+                new Coordinate(0, 0), new Coordinate(1.5, 0), new Coordinate(1.5, -1.25, 3)});
+        LinearRing externalLR = geometryFactory.createLinearRing(new Coordinate[]{
+                new Coordinate(0, 0), new Coordinate(10, 0), new Coordinate(0, 10), new Coordinate(10, 10), new Coordinate(0, 0)});
+        LinearRing[] internalLRs = new LinearRing[]{geometryFactory.createLinearRing(new Coordinate[]{
+                new Coordinate(2, 2), new Coordinate(2, 3), new Coordinate(3, 3), new Coordinate(3, 2), new Coordinate(2, 2)})};
+        Polygon polygon = geometryFactory.createPolygon(externalLR, internalLRs);
+        MultiPolygon multiPolygon = geometryFactory.createMultiPolygon(new Polygon[]{polygon,
+                geometryFactory.createPolygon(externalLR)});
+        GeometryCollection geoCollection = geometryFactory.createGeometryCollection(new Geometry[]{
+                point, lineString, polygon, multiPolygon, geometryFactory.createMultiPoint(new Point[]{point, point})});
+        return new Object[]{point, lineString, externalLR, polygon, multiPolygon, geoCollection,
+                new LineSegment(0, 0, 1, 1), new Triangle(new Coordinate(0, 0), new Coordinate(1, 0), new Coordinate(0, 1))};
+    }
+}
@@ -0,0 +1,111 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.*;
+import org.n52.tsf.model.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JTSModelFixedPrecisionTest {
+
+    private static final double SCALE = 1e7;
+
+    @Before
+    public void setUp() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.createFile(filePath);
+    }
+
+    @Test
+    public void testFixedPrecisionProtobuf() throws Exception {
+        Polygon polygon = createPolygon();
+        SerializationHandler pbSerializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_LT);
+        pbSerializer.serialize(polygon);
+        pbSerializer.close();
+        long doubleSize = new File(Utils.TEST_FILE_LOCATION).length();
+
+        System.out.println("-------------- Serializing JTS Model Polygon with fixed precision via Protobuf -------------------------");
+        SerializationHandler fixedSerializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_LT, createOptions());
+        fixedSerializer.serialize(polygon);
+        fixedSerializer.close();
+        assertTrue(new File(Utils.TEST_FILE_LOCATION).length() < doubleSize);
+        System.out.println("-------------- Deserializing JTS Model Polygon with fixed precision via Protobuf -------------------------");
+        DeserializationHandler pbDeserializationHandler = DeserializationFactory.createDeserializer(new FileInputStream(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_DESERIALIZER_LT);
+        Polygon polygonDeserialized = (Polygon) pbDeserializationHandler.deserialize();
+        pbDeserializationHandler.close();
+        assertTrue(polygon.equalsExact(polygonDeserialized, 1 / SCALE));
+        System.out.println("Successfully Deserialized : " + polygonDeserialized);
+    }
+
+    @Test
+    public void testFixedPrecisionAvro() throws Exception {
+        Polygon polygon = createPolygon();
+        System.out.println("-------------- Serializing JTS Model Polygon with fixed precision via Avro -------------------------");
+        SerializationHandler avroSerializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.AVRO_SERIALIZER_LT, createOptions());
+        avroSerializer.serialize(polygon);
+        avroSerializer.serialize(polygon.getExteriorRing());
+        avroSerializer.close();
+        assertTrue(new File(Utils.TEST_FILE_LOCATION).length() > 0);
+        System.out.println("-------------- Deserializing JTS Model Polygon with fixed precision via Avro -------------------------");
+        DeserializationHandler avroDeserializationHandler = DeserializationFactory.createDeserializer(new FileInputStream(Utils.TEST_FILE_LOCATION), DeserializerType.AVRO_DESERIALIZER_LT);
+        Polygon polygonDeserialized = (Polygon) avroDeserializationHandler.deserialize();
+        LineString lineStringDeserialized = (LineString) avroDeserializationHandler.deserialize();
+        avroDeserializationHandler.close();
+        assertTrue(polygon.equalsExact(polygonDeserialized, 1 / SCALE));
+        assertEquals(polygon.getExteriorRing().getNumPoints(), lineStringDeserialized.getNumPoints());
+        System.out.println("Successfully Deserialized : " + polygonDeserialized);
+    }
+
+    private SerializationOptions createOptions() {
+        SerializationOptions options = new SerializationOptions();
+        options.setPrecisionScale(new PrecisionModel(SCALE).getScale());
+        return options;
+    }
+
+    private Polygon createPolygon() {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        LinearRing externalLR = geometryFactory.createLinearRing(new Coordinate[]{
+                new Coordinate(7.6281234, 51.9601234), new Coordinate(7.6291234, 51.9601234), new Coordinate(7.6291234, 51.9611234),
+                new Coordinate(7.6281234, 51.9611234), new Coordinate(7.6281234, 51.9601234)});
+        LinearRing[] internalLRs = new LinearRing[]{geometryFactory.createLinearRing(new Coordinate[]{
+                new Coordinate(7.6283, 51.9603), new Coordinate(7.6283, 51.9604), new Coordinate(7.6284, 51.9604),
+                new Coordinate(7.6284, 51.9603), new Coordinate(7.6283, 51.9603)})};
+        return geometryFactory.createPolygon(externalLR, internalLRs);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.deleteIfExists(filePath);
+    }
+}
@@ -0,0 +1,119 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.n52.tsf.model.*;
+import org.n52.tsf.model.vector.WorkloadType;
+import org.n52.tsf.model.vector.jts.locationtech.GeometryGeneratorLT;
+import org.n52.tsf.model.vector.jts.vividsolutions.GeometryGeneratorVS;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class JTSModelGeneratorTest {
+
+    private static final int VERTEX_COUNT = 1000;
+
+    @Before
+    public void setUp() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.createFile(filePath);
+    }
+
+    @Test
+    public void testReproducibleWorkloads() throws Exception {
+        GeometryFactory geometryFactory = new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+        for (WorkloadType workloadType : WorkloadType.values()) {
+            Geometry geometry = new GeometryGeneratorLT().create(workloadType, VERTEX_COUNT);
+            Geometry packedGeometry = new GeometryGeneratorLT(GeometryGeneratorLT.DEFAULT_SEED, geometryFactory)
+                    .create(workloadType, VERTEX_COUNT);
+            com.vividsolutions.jts.geom.Geometry vsGeometry = new GeometryGeneratorVS().create(workloadType, VERTEX_COUNT);
+            assertTrue(workloadType.name(), geometry.isValid());
+            assertTrue(geometry.equalsExact(packedGeometry));
+            assertEquals(geometry.toText(), vsGeometry.toText());
+            assertTrue(geometry.getNumPoints() > VERTEX_COUNT / 2);
+            assertTrue(geometry.getNumPoints() <= VERTEX_COUNT + 2 * GeometryGeneratorLT.DEFAULT_COLLECTION_DEPTH);
+            assertFalse(geometry.equalsExact(new GeometryGeneratorLT(7L, geometryFactory).create(workloadType, VERTEX_COUNT)));
+        }
+    }
+
+    @Test
+    public void testWorkloadShapes() throws Exception {
+        GeometryGeneratorLT generator = new GeometryGeneratorLT();
+        assertEquals(VERTEX_COUNT, generator.createMultiPoint(VERTEX_COUNT).getNumGeometries());
+        assertEquals(VERTEX_COUNT, generator.createLineString(VERTEX_COUNT).getNumPoints());
+        Polygon polygon = generator.createPolygon(100, 50);
+        assertEquals(50, polygon.getNumInteriorRing());
+        assertTrue(polygon.isValid());
+        assertEquals(2000, generator.createMultiPolygon(2000, 8).getNumGeometries());
+        Geometry collection = generator.createNestedCollection(20, VERTEX_COUNT);
+        int depth = 0;
+        while (collection instanceof GeometryCollection && !(collection instanceof MultiPolygon)) {
+            depth++;
+            collection = collection.getGeometryN(collection.getNumGeometries() - 1);
+        }
+        assertEquals(20, depth);
+        assertTrue(collection instanceof Polygon);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidVertexCount() {
+        new GeometryGeneratorLT().createLineString(1);
+    }
+
+    @Test
+    public void testRoundTripWorkloads() throws Exception {
+        for (WorkloadType workloadType : WorkloadType.values()) {
+            Geometry geometry = new GeometryGeneratorLT().create(workloadType, VERTEX_COUNT);
+            assertTrue(geometry.equalsExact(roundTrip(geometry, SerializerType.PROTOBUF_SERIALIZER_LT,
+                    DeserializerType.PROTOBUF_DESERIALIZER_LT)));
+            assertTrue(geometry.equalsExact(roundTrip(geometry, SerializerType.AVRO_SERIALIZER_LT,
+                    DeserializerType.AVRO_DESERIALIZER_LT)));
+        }
+    }
+
+    private Geometry roundTrip(Geometry geometry, SerializerType serializerType, DeserializerType deserializerType)
+            throws Exception {
+        SerializationHandler serializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), serializerType);
+        serializer.serialize(geometry);
+        serializer.close();
+        DeserializationHandler deserializer = DeserializationFactory.createDeserializer(new FileInputStream(Utils.TEST_FILE_LOCATION), deserializerType);
+        Geometry geometryDeserialized = (Geometry) deserializer.deserialize();
+        deserializer.close();
+        return geometryDeserialized;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.deleteIfExists(filePath);
+    }
+}
@@ -0,0 +1,202 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+
+package org.n52.tsf.model.vector.jts.test;
+
+import org.junit.After;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.n52.tsf.model.*;
+import org.n52.tsf.model.vector.WorkloadType;
+import org.n52.tsf.model.vector.jts.locationtech.GeometryGeneratorLT;
+import org.n52.tsf.model.vector.jts.locationtech.PBIndexedDeserializationHandlerLT;
+import org.n52.tsf.model.vector.jts.vividsolutions.GeometryGeneratorVS;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JTSModelIndexedContainerTest {
+
+    private static final int VERTEX_COUNT = 100;
+
+    @Test
+    public void testRandomAccess() throws Exception {
+        WorkloadType[] workloadTypes = WorkloadType.values();
+        Geometry[] geometries = new Geometry[workloadTypes.length];
+        SerializationHandler serializer = SerializationFactory.createSerializer(
+                new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_INDEXED_SERIALIZER_LT);
+        for (int i = 0; i < geometries.length; i++) {
+            geometries[i] = new GeometryGeneratorLT().create(workloadTypes[i], VERTEX_COUNT);
+            serializer.serialize(geometries[i]);
+        }
+        serializer.close();
+
+        IndexedDeserializationHandler deserializer = DeserializationFactory.createIndexedDeserializer(
+                Paths.get(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_INDEXED_DESERIALIZER_LT);
+        assertEquals(geometries.length, deserializer.getCount());
+        for (int i = geometries.length - 1; i >= 0; i--) {
+            assertTrue(geometries[i].equalsExact((Geometry) deserializer.deserialize(i)));
+        }
+        deserializer.seek(2);
+        for (int i = 2; i < geometries.length; i++) {
+            assertTrue(geometries[i].equalsExact((Geometry) deserializer.deserialize()));
+        }
+        assertNull(deserializer.deserialize());
+        deserializer.seek(0);
+        int count = 0;
+        for (Object geometry : deserializer) {
+            assertTrue(geometries[count++].equalsExact((Geometry) geometry));
+        }
+        assertEquals(geometries.length, count);
+        deserializer.close();
+    }
+
+    @Test
+    public void testRandomAccessVS() throws Exception {
+        com.vividsolutions.jts.geom.Geometry[] geometries = new com.vividsolutions.jts.geom.Geometry[3];
+        SerializationHandler serializer = SerializationFactory.createSerializer(
+                new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_INDEXED_SERIALIZER_VS);
+        GeometryGeneratorVS generator = new GeometryGeneratorVS();
+        for (int i = 0; i < geometries.length; i++) {
+            geometries[i] = generator.create(WorkloadType.POLYGON_WITH_HOLES, VERTEX_COUNT);
+            serializer.serialize(geometries[i]);
+        }
+        serializer.close();
+
+        IndexedDeserializationHandler deserializer = DeserializationFactory.createIndexedDeserializer(
+                Paths.get(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_INDEXED_DESERIALIZER_VS);
+        assertTrue(geometries[1].equalsExact((com.vividsolutions.jts.geom.Geometry) deserializer.deserialize(1)));
+        assertTrue(geometries[2].equalsExact((com.vividsolutions.jts.geom.Geometry) deserializer.deserialize()));
+        assertNull(deserializer.deserialize());
+        deserializer.close();
+    }
+
+    @Test
+    public void testSpatialIndexQuery() throws Exception {
+        Geometry points = new GeometryGeneratorLT().createMultiPoint(1000);
+        List<Geometry> geometries = new ArrayList<>();
+        for (int i = 0; i < points.getNumGeometries(); i++) {
+            geometries.add(points.getGeometryN(i).buffer(i % 7));
+        }
+        geometries.add(new GeometryFactory().createGeometryCollection(new Geometry[0]));
+        SerializationOptions options = new SerializationOptions();
+        options.setSpatialIndex(true);
+        options.setIndexNodeSize(4);
+        SerializationHandler serializer = SerializationFactory.createSerializer(
+                new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_INDEXED_SERIALIZER_LT, options);
+        for (Geometry geometry : geometries) {
+            serializer.serialize(geometry);
+        }
+        serializer.close();
+
+        PBIndexedDeserializationHandlerLT deserializer = (PBIndexedDeserializationHandlerLT) DeserializationFactory
+                .createIndexedDeserializer(Paths.get(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_INDEXED_DESERIALIZER_LT);
+        assertTrue(deserializer.hasSpatialIndex());
+        assertEquals(geometries.size(), deserializer.getCount());
+        Envelope extent = points.getEnvelopeInternal();
+        for (double fraction : new double[]{0.01, 0.1, 0.5, 2}) {
+            Envelope envelope = new Envelope(extent.centre());
+            envelope.expandBy(extent.getWidth() * fraction / 2, extent.getHeight() * fraction / 2);
+            List<String> expected = new ArrayList<>();
+            for (Geometry geometry : geometries) {
+                if (envelope.intersects(geometry.getEnvelopeInternal())) {
+                    expected.add(geometry.toText());
+                }
+            }
+            List<String> actual = new ArrayList<>();
+            for (Object geometry : deserializer.query(envelope)) {
+                actual.add(((Geometry) geometry).toText());
+            }
+            Collections.sort(expected);
+            Collections.sort(actual);
+            assertEquals(expected, actual);
+        }
+        assertTrue(deserializer.query(new Envelope()).isEmpty());
+        deserializer.seek(0);
+        int count = 0;
+        for (Object geometry : deserializer) {
+            count++;
+        }
+        assertEquals(geometries.size(), count);
+        deserializer.close();
+    }
+
+    @Test
+    public void testQueryWithoutSpatialIndex() throws Exception {
+        Geometry points = new GeometryGeneratorLT().createMultiPoint(100);
+        SerializationHandler serializer = SerializationFactory.createSerializer(
+                new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_INDEXED_SERIALIZER_LT);
+        for (int i = 0; i < points.getNumGeometries(); i++) {
+            serializer.serialize(points.getGeometryN(i));
+        }
+        serializer.close();
+        PBIndexedDeserializationHandlerLT deserializer = new PBIndexedDeserializationHandlerLT(Paths.get(Utils.TEST_FILE_LOCATION));
+        assertFalse(deserializer.hasSpatialIndex());
+        Envelope envelope = points.getGeometryN(42).getEnvelopeInternal();
+        List<Object> geometries = deserializer.query(envelope);
+        assertFalse(geometries.isEmpty());
+        for (Object geometry : geometries) {
+            assertTrue(envelope.intersects(((Geometry) geometry).getEnvelopeInternal()));
+        }
+        deserializer.close();
+    }
+
+    @Test
+    public void testEmptyContainer() throws Exception {
+        SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION),
+                SerializerType.PROTOBUF_INDEXED_SERIALIZER_LT).close();
+        IndexedDeserializationHandler deserializer = DeserializationFactory.createIndexedDeserializer(
+                Paths.get(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_INDEXED_DESERIALIZER_LT);
+        assertEquals(0, deserializer.getCount());
+        assertNull(deserializer.deserialize());
+        deserializer.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedContainer() throws Exception {
+        SerializationHandler serializer = SerializationFactory.createSerializer(
+                new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_INDEXED_SERIALIZER_LT);
+        serializer.serialize(new GeometryGeneratorLT().createLineString(VERTEX_COUNT));
+        serializer.close();
+        try (RandomAccessFile file = new RandomAccessFile(Utils.TEST_FILE_LOCATION, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        DeserializationFactory.createIndexedDeserializer(Paths.get(Utils.TEST_FILE_LOCATION),
+                DeserializerType.PROTOBUF_INDEXED_DESERIALIZER_LT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.deleteIfExists(filePath);
+    }
+}
@@ -0,0 +1,150 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.test;
+
+import org.junit.After;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.n52.tsf.model.*;
+import org.n52.tsf.model.vector.WorkloadType;
+import org.n52.tsf.model.vector.jts.locationtech.GeometryGeneratorLT;
+import org.n52.tsf.model.vector.jts.locationtech.LazyGeometryLT;
+import org.n52.tsf.model.vector.jts.locationtech.PBDeserializationHandlerLT;
+import org.n52.tsf.model.vector.jts.vividsolutions.GeometryGeneratorVS;
+import org.n52.tsf.model.vector.jts.vividsolutions.LazyGeometryVS;
+import org.n52.tsf.serialization.protobuf.gen.GeoProtobuf;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JTSModelLazyReaderTest {
+
+    private static final int VERTEX_COUNT = 500;
+
+    @Test
+    public void testLazyGeometries() throws Exception {
+        List<Geometry> geometries = new ArrayList<>();
+        GeometryGeneratorLT generator = new GeometryGeneratorLT();
+        for (WorkloadType workloadType : WorkloadType.values()) {
+            geometries.add(generator.create(workloadType, VERTEX_COUNT));
+        }
+        for (boolean recordEnvelopes : new boolean[]{true, false}) {
+            SerializationOptions options = new SerializationOptions();
+            options.setRecordEnvelopes(recordEnvelopes);
+            SerializationHandler serializer = SerializationFactory.createSerializer(
+                    new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_LT, options);
+            for (Geometry geometry : geometries) {
+                serializer.serialize(geometry);
+            }
+            serializer.close();
+
+            DeserializationHandler deserializer = DeserializationFactory.createDeserializer(
+                    new FileInputStream(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_LAZY_DESERIALIZER_LT);
+            for (Geometry geometry : geometries) {
+                LazyGeometryLT lazyGeometry = (LazyGeometryLT) deserializer.deserialize();
+                assertEquals(geometry.getGeometryType().toUpperCase(), lazyGeometry.getType().name().replace("_", ""));
+                Envelope envelope = lazyGeometry.getEnvelope();
+                assertEquals(recordEnvelopes, !lazyGeometry.isDecoded());
+                assertEquals(geometry.getEnvelopeInternal(), envelope);
+                assertTrue(geometry.equalsExact((Geometry) lazyGeometry.getGeometry()));
+                assertSame(lazyGeometry.getGeometry(), lazyGeometry.getGeometry());
+            }
+            assertNull(deserializer.deserialize());
+            deserializer.close();
+        }
+    }
+
+    @Test
+    public void testLazyEnvelopeFilter() throws Exception {
+        SerializationOptions options = new SerializationOptions();
+        options.setRecordEnvelopes(true);
+        SerializationHandler serializer = SerializationFactory.createSerializer(
+                new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_LT, options);
+        MultiPolygon multiPolygon = new GeometryGeneratorLT().createMultiPolygon(50, 20);
+        List<Geometry> geometries = new ArrayList<>();
+        for (int i = 0; i < multiPolygon.getNumGeometries(); i++) {
+            geometries.add(multiPolygon.getGeometryN(i));
+            serializer.serialize(multiPolygon.getGeometryN(i));
+        }
+        serializer.close();
+        Envelope filter = new Envelope(geometries.get(7).getEnvelopeInternal());
+        filter.expandBy(filter.getWidth());
+
+        PBDeserializationHandlerLT deserializer = (PBDeserializationHandlerLT) DeserializationFactory.createDeserializer(
+                new FileInputStream(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_LAZY_DESERIALIZER_LT);
+        assertTrue(deserializer.isLazy());
+        assertEquals(DeserializerType.PROTOBUF_LAZY_DESERIALIZER_LT, deserializer.getDeserializerType());
+        DeserializationHandler eagerDeserializer = new PBDeserializationHandlerLT(new FileInputStream(Utils.TEST_FILE_LOCATION));
+        assertEquals(DeserializerType.PROTOBUF_DESERIALIZER_LT, eagerDeserializer.getDeserializerType());
+        eagerDeserializer.close();
+        deserializer.setFilter(filter);
+        int count = 0;
+        for (Object object : deserializer) {
+            LazyGeometryLT lazyGeometry = (LazyGeometryLT) object;
+            assertFalse(lazyGeometry.isDecoded());
+            assertTrue(filter.intersects(lazyGeometry.getEnvelope()));
+            count++;
+        }
+        deserializer.close();
+        int expectedCount = 0;
+        for (Geometry geometry : geometries) {
+            if (filter.intersects(geometry.getEnvelopeInternal())) {
+                expectedCount++;
+            }
+        }
+        assertEquals(expectedCount, count);
+        assertTrue(count > 1 && count < geometries.size());
+    }
+
+    @Test
+    public void testLazyGeometriesVS() throws Exception {
+        SerializationHandler serializer = SerializationFactory.createSerializer(
+                new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_VS);
+        com.vividsolutions.jts.geom.MultiPolygon multiPolygon = new GeometryGeneratorVS().createMultiPolygon(10, VERTEX_COUNT);
+        serializer.serialize(multiPolygon);
+        serializer.close();
+
+        DeserializationHandler deserializer = DeserializationFactory.createDeserializer(
+                Paths.get(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_LAZY_DESERIALIZER_VS);
+        LazyGeometryVS lazyGeometry = (LazyGeometryVS) deserializer.deserialize();
+        assertNull(deserializer.deserialize());
+        deserializer.close();
+        assertEquals(GeoProtobuf.Geometry.Type.MULTIPOLYGON, lazyGeometry.getType());
+        assertFalse(lazyGeometry.isDecoded());
+        assertTrue(multiPolygon.equalsExact((com.vividsolutions.jts.geom.Geometry) lazyGeometry.getGeometry()));
+        assertEquals(multiPolygon.getEnvelopeInternal(), lazyGeometry.getEnvelope());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.deleteIfExists(filePath);
+    }
+}
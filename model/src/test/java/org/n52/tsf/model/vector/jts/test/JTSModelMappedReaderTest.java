@@ -0,0 +1,142 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+
+package org.n52.tsf.model.vector.jts.test;
+
+import org.junit.After;
+import org.junit.Test;
+import org.locationtech.jts.geom.*;
+import org.n52.tsf.model.*;
+import org.n52.tsf.model.vector.WorkloadType;
+import org.n52.tsf.model.vector.jts.locationtech.GeometryGeneratorLT;
+import org.n52.tsf.model.vector.jts.locationtech.MappedCoordinateSequenceLT;
+import org.n52.tsf.model.vector.jts.vividsolutions.GeometryGeneratorVS;
+import org.n52.tsf.model.vector.jts.vividsolutions.MappedCoordinateSequenceVS;
+
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JTSModelMappedReaderTest {
+
+    private static final int VERTEX_COUNT = 500;
+
+    @Test
+    public void testMappedPackedCoordinates() throws Exception {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        List<Geometry> geometries = new ArrayList<>();
+        for (WorkloadType workloadType : WorkloadType.values()) {
+            geometries.add(new GeometryGeneratorLT().create(workloadType, VERTEX_COUNT));
+        }
+        geometries.add(geometryFactory.createLineString(new Coordinate[]{
+                new Coordinate(7.1, 51.2, 60.5), new Coordinate(7.3, 51.4, 61.5), new Coordinate(7.5, 51.3, 62.5)}));
+        for (boolean packed : new boolean[]{true, false}) {
+            SerializationOptions options = new SerializationOptions();
+            options.setPackedCoordinates(packed);
+            SerializationHandler serializer = SerializationFactory.createSerializer(
+                    new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_LT, options);
+            for (Geometry geometry : geometries) {
+                serializer.serialize(geometry);
+            }
+            serializer.close();
+
+            DeserializationHandler deserializer = DeserializationFactory.createDeserializer(
+                    Paths.get(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_MAPPED_DESERIALIZER_LT);
+            for (Geometry geometry : geometries) {
+                Geometry geometryDeserialized = (Geometry) deserializer.deserialize();
+                assertTrue(geometry.equalsExact(geometryDeserialized));
+                assertEquals(geometry.getEnvelopeInternal(), geometryDeserialized.getEnvelopeInternal());
+                assertEquals(geometry.getCoordinate().z, geometryDeserialized.getCoordinate().z, 0);
+                assertEquals(packed, getFirstSequence(geometryDeserialized) instanceof MappedCoordinateSequenceLT);
+            }
+            assertNull(deserializer.deserialize());
+            deserializer.close();
+        }
+    }
+
+    @Test
+    public void testMappedSequenceIsReadOnly() throws Exception {
+        SerializationOptions options = new SerializationOptions();
+        options.setPackedCoordinates(true);
+        SerializationHandler serializer = SerializationFactory.createSerializer(
+                new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_LT, options);
+        LineString lineString = new GeometryGeneratorLT().createLineString(VERTEX_COUNT);
+        serializer.serialize(lineString);
+        serializer.close();
+
+        DeserializationHandler deserializer = DeserializationFactory.createDeserializer(
+                Paths.get(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_MAPPED_DESERIALIZER_LT);
+        LineString lineStringDeserialized = (LineString) deserializer.deserialize();
+        deserializer.close();
+        CoordinateSequence sequence = lineStringDeserialized.getCoordinateSequence();
+        assertTrue(lineString.getPointN(7).equalsExact(lineStringDeserialized.getPointN(7)));
+        CoordinateSequence copy = sequence.copy();
+        assertFalse(copy instanceof MappedCoordinateSequenceLT);
+        copy.setOrdinate(0, CoordinateSequence.X, 0);
+        try {
+            sequence.setOrdinate(0, CoordinateSequence.X, 0);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertEquals(lineString.getCoordinateN(0).x, sequence.getX(0), 0);
+        }
+    }
+
+    @Test
+    public void testMappedPackedCoordinatesVS() throws Exception {
+        SerializationOptions options = new SerializationOptions();
+        options.setPackedCoordinates(true);
+        SerializationHandler serializer = SerializationFactory.createSerializer(
+                new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_VS, options);
+        com.vividsolutions.jts.geom.Polygon polygon = new GeometryGeneratorVS().createPolygon(VERTEX_COUNT, 10);
+        serializer.serialize(polygon);
+        serializer.close();
+
+        DeserializationHandler deserializer = DeserializationFactory.createDeserializer(
+                Paths.get(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_MAPPED_DESERIALIZER_VS);
+        com.vividsolutions.jts.geom.Polygon polygonDeserialized = (com.vividsolutions.jts.geom.Polygon) deserializer.deserialize();
+        assertNull(deserializer.deserialize());
+        deserializer.close();
+        assertTrue(polygon.equalsExact(polygonDeserialized));
+        assertTrue(polygonDeserialized.getExteriorRing().getCoordinateSequence() instanceof MappedCoordinateSequenceVS);
+    }
+
+    private static CoordinateSequence getFirstSequence(Geometry geometry) {
+        while (geometry instanceof GeometryCollection) {
+            geometry = geometry.getGeometryN(0);
+        }
+        if (geometry instanceof Polygon) {
+            geometry = ((Polygon) geometry).getExteriorRing();
+        }
+        return geometry instanceof Point ? ((Point) geometry).getCoordinateSequence()
+                : ((LineString) geometry).getCoordinateSequence();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.deleteIfExists(filePath);
+    }
+}
@@ -0,0 +1,103 @@
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+
+package org.n52.tsf.model.vector.jts.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.*;
+import org.n52.tsf.model.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JTSModelPackedCoordinatesTest {
+
+    @Before
+    public void setUp() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.createFile(filePath);
+    }
+
+    @Test
+    public void testPackedPolygon() throws Exception {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        LinearRing externalLR = geometryFactory.createLinearRing(new Coordinate[]{
+                new Coordinate(7.1, 51.1), new Coordinate(7.9, 51.1), new Coordinate(7.9, 51.9), new Coordinate(7.1, 51.9), new Coordinate(7.1, 51.1)});
+        LinearRing[] internalLRs = new LinearRing[]{geometryFactory.createLinearRing(new Coordinate[]{
+                new Coordinate(7.2, 51.2), new Coordinate(7.2, 51.3), new Coordinate(7.3, 51.3), new Coordinate(7.3, 51.2), new Coordinate(7.2, 51.2)})};
+        Polygon polygon = geometryFactory.createPolygon(externalLR, internalLRs);
+
+        SerializationHandler pbSerializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_LT);
+        pbSerializer.serialize(polygon);
+        pbSerializer.close();
+        long nestedSize = new File(Utils.TEST_FILE_LOCATION).length();
+
+        System.out.println("-------------- Serializing JTS Model Polygon with packed coordinates via Protobuf -------------------------");
+        SerializationOptions options = new SerializationOptions();
+        options.setPackedCoordinates(true);
+        pbSerializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_LT, options);
+        pbSerializer.serialize(polygon);
+        pbSerializer.close();
+        assertTrue(new File(Utils.TEST_FILE_LOCATION).length() < nestedSize);
+        System.out.println("-------------- Deserializing JTS Model Polygon with packed coordinates via Protobuf -------------------------");
+        DeserializationHandler pbDeserializationHandler = DeserializationFactory.createDeserializer(new FileInputStream(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_DESERIALIZER_LT);
+        Polygon polygonDeserialized = (Polygon) pbDeserializationHandler.deserialize();
+        pbDeserializationHandler.close();
+        assertEquals(polygon, polygonDeserialized);
+        System.out.println("Successfully Deserialized : " + polygonDeserialized);
+    }
+
+    @Test
+    public void testPackedGeometryCollection() throws Exception {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Point point = geometryFactory.createPoint(new Coordinate(1, 2));
+        LineString lineString = geometryFactory.createLineString(new Coordinate[]{
+                new Coordinate(0, 0), new Coordinate(1, 0), new Coordinate(1, 1)});
+        GeometryCollection geoCollection = geometryFactory.createGeometryCollection(new Geometry[]{point, lineString});
+        System.out.println("-------------- Serializing JTS Model Geometry Collection with packed coordinates via Protobuf -------------------------");
+        SerializationOptions options = new SerializationOptions();
+        options.setPackedCoordinates(true);
+        SerializationHandler pbSerializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_LT, options);
+        pbSerializer.serialize(geoCollection);
+        pbSerializer.close();
+        assertTrue(new File(Utils.TEST_FILE_LOCATION).length() > 0);
+        System.out.println("-------------- Deserializing JTS Model Geometry Collection with packed coordinates via Protobuf -------------------------");
+        DeserializationHandler pbDeserializationHandler = DeserializationFactory.createDeserializer(new FileInputStream(Utils.TEST_FILE_LOCATION), DeserializerType.PROTOBUF_DESERIALIZER_LT);
+        GeometryCollection geoCollectionDeserialized = (GeometryCollection) pbDeserializationHandler.deserialize();
+        pbDeserializationHandler.close();
+        assertEquals(geoCollection, geoCollectionDeserialized);
+        System.out.println("Successfully Deserialized : " + geoCollectionDeserialized);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
+        Files.deleteIfExists(filePath);
+    }
+}
@@ -23,6 +23,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.n52.tsf.model.*;
@@ -33,6 +34,8 @@ import java.io.FileOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -79,6 +82,36 @@ public class JTSModelPointTest {
         System.out.println("Successfully Deserialized : " + pointDeserialized);
     }
 
+    @Test
+    public void testIterateGeoPoints() throws Exception {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        List<Geometry> geometries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            geometries.add(geometryFactory.createPoint(new Coordinate(i, 2 * i)));
+            if (i % 100 == 0) {
+                geometries.add(geometryFactory.createMultiPoint(new Coordinate[]{new Coordinate(i, 1), new Coordinate(i, 2)}));
+            }
+        }
+        for (SerializerType serializerType : new SerializerType[]{SerializerType.AVRO_SERIALIZER_LT, SerializerType.PROTOBUF_SERIALIZER_LT}) {
+            System.out.println("-------------- Serializing JTS Model Points with " + serializerType + " ------------------------");
+            SerializationHandler serializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), serializerType);
+            for (Geometry geometry : geometries) {
+                serializer.serialize(geometry);
+            }
+            serializer.close();
+            System.out.println("-------------- Iterating JTS Model Points ------------------------");
+            DeserializerType deserializerType = serializerType == SerializerType.AVRO_SERIALIZER_LT ?
+                    DeserializerType.AVRO_DESERIALIZER_LT : DeserializerType.PROTOBUF_DESERIALIZER_LT;
+            DeserializationHandler deserializationHandler = DeserializationFactory.createDeserializer(new FileInputStream(Utils.TEST_FILE_LOCATION), deserializerType);
+            int count = 0;
+            for (Object geometryDeserialized : deserializationHandler) {
+                assertEquals(geometries.get(count++), geometryDeserialized);
+            }
+            deserializationHandler.close();
+            assertEquals(geometries.size(), count);
+        }
+    }
+
     @After
     public void tearDown() throws Exception {
         Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
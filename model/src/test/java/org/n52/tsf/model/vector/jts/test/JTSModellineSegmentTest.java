@@ -34,6 +34,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class JTSModellineSegmentTest {
@@ -51,6 +52,7 @@ public class JTSModellineSegmentTest {
                 new Coordinate(0, 0), new Coordinate(1, 0));
         System.out.println("-------------- Serializing JTS Model LineSegment via Protobuf -------------------------");
         SerializationHandler pbSerializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.PROTOBUF_SERIALIZER_LT);
+        assertEquals(SerializerType.PROTOBUF_SERIALIZER_LT, pbSerializer.getSerializerType());
         pbSerializer.serialize(lineSegment);
         pbSerializer.close();
         assertTrue(new File(Utils.TEST_FILE_LOCATION).length() > 0);
@@ -73,12 +75,36 @@ public class JTSModellineSegmentTest {
         assertTrue(new File(Utils.TEST_FILE_LOCATION).length() > 0);
         System.out.println("-------------- Deserializing JTS Model LineSegment via Avro -------------------------");
         DeserializationHandler avroDeserializationHandler = DeserializationFactory.createDeserializer(new FileInputStream(Utils.TEST_FILE_LOCATION), DeserializerType.AVRO_DESERIALIZER_LT);
+        assertEquals(DeserializerType.AVRO_DESERIALIZER_LT, avroDeserializationHandler.getDeserializerType());
         LineSegment lineSegmentDeserialized = (LineSegment) avroDeserializationHandler.deserialize();
         avroDeserializationHandler.close();
         assertEquals(lineSegment, lineSegmentDeserialized);
         System.out.println("Successfully Deserialized : " + lineSegmentDeserialized);
     }
 
+    @Test
+    public void testConsecutiveGeoLineSegmentsWithAvroVS() throws Exception {
+        com.vividsolutions.jts.geom.LineSegment first = new com.vividsolutions.jts.geom.LineSegment(
+                new com.vividsolutions.jts.geom.Coordinate(0, 0), new com.vividsolutions.jts.geom.Coordinate(1, 0));
+        com.vividsolutions.jts.geom.LineSegment second = new com.vividsolutions.jts.geom.LineSegment(
+                new com.vividsolutions.jts.geom.Coordinate(1, 0), new com.vividsolutions.jts.geom.Coordinate(1, 1));
+        com.vividsolutions.jts.geom.Point point = new com.vividsolutions.jts.geom.GeometryFactory().createPoint(
+                new com.vividsolutions.jts.geom.Coordinate(2, 2));
+        System.out.println("-------------- Serializing JTS VS Model LineSegments via Avro -------------------------");
+        SerializationHandler avroSerializer = SerializationFactory.createSerializer(new FileOutputStream(Utils.TEST_FILE_LOCATION), SerializerType.AVRO_SERIALIZER_VS);
+        avroSerializer.serialize(first);
+        avroSerializer.serialize(second);
+        avroSerializer.serialize(point);
+        avroSerializer.close();
+        System.out.println("-------------- Deserializing JTS VS Model LineSegments via Avro -------------------------");
+        DeserializationHandler avroDeserializationHandler = DeserializationFactory.createDeserializer(new FileInputStream(Utils.TEST_FILE_LOCATION), DeserializerType.AVRO_DESERIALIZER_VS);
+        assertEquals(first, avroDeserializationHandler.deserialize());
+        assertEquals(second, avroDeserializationHandler.deserialize());
+        assertTrue(point.equalsExact((com.vividsolutions.jts.geom.Geometry) avroDeserializationHandler.deserialize()));
+        assertNull(avroDeserializationHandler.deserialize());
+        avroDeserializationHandler.close();
+    }
+
     @After
     public void tearDown() throws Exception {
         Path filePath = Paths.get(Utils.TEST_FILE_LOCATION);
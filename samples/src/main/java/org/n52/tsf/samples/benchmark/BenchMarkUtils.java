@@ -22,19 +22,27 @@ package org.n52.tsf.samples.benchmark;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryCollection;
 import com.vividsolutions.jts.geom.GeometryFactory;
+import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
 import org.apache.commons.cli.Options;
 import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.data.shapefile.shp.ShapefileReader;
+import org.n52.tsf.model.vector.WorkloadType;
+import org.n52.tsf.model.vector.jts.vividsolutions.GeometryGeneratorVS;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class BenchMarkUtils {
     public static final String FILE_OUTPUT = "output";
     public static final String FILE_INPUT = "input";
+    public static final String WORKLOAD = "workload";
+    public static final String VERTICES = "vertices";
+    public static final int DEFAULT_VERTICES = 1000000;
 
     public static GeometryCollection getGeometryCollection(File shapeFile) throws IOException {
         ShpFiles shpFiles = new ShpFiles(shapeFile.toURI().toURL());
@@ -48,9 +56,61 @@ public class BenchMarkUtils {
         return new GeometryFactory().createGeometryCollection(geometries.toArray(new Geometry[geometries.size()]));
     }
 
+    /**
+     * @return the geometries of the shape file input, or the generated workload when no input is given
+     */
+    public static GeometryCollection getGeometryCollection(CommandLine line) throws IOException {
+        if (line.hasOption(FILE_INPUT)) {
+            return getGeometryCollection(new File(line.getOptionValue(FILE_INPUT)));
+        }
+        WorkloadType workloadType = WorkloadType.valueOf(line.getOptionValue(WORKLOAD));
+        int vertexCount = Integer.parseInt(line.getOptionValue(VERTICES, Integer.toString(DEFAULT_VERTICES)));
+        Geometry geometry = new GeometryGeneratorVS().create(workloadType, vertexCount);
+        if (geometry instanceof GeometryCollection) {
+            return (GeometryCollection) geometry;
+        }
+        return geometry.getFactory().createGeometryCollection(new Geometry[]{geometry});
+    }
+
     public static void setupOptions(Options options) {
+        setupOptions(options, true);
+    }
+
+    /**
+     * Adds the options of {@link #setupOptions(Options)}, where a generated workload can replace the shape file input.
+     */
+    public static void setupWorkloadOptions(Options options) {
+        setupOptions(options, false);
+        Option workload = Option.builder("w")
+                .argName(WORKLOAD)
+                .desc("Generated workload instead of a shape file: " + Arrays.toString(WorkloadType.values()))
+                .longOpt("workload")
+                .hasArg(true)
+                .numberOfArgs(1)
+                .type(String.class)
+                .build();
+
+        Option vertices = Option.builder("n")
+                .required(false)
+                .argName(VERTICES)
+                .desc("Vertices of the generated workload, " + DEFAULT_VERTICES + " by default")
+                .longOpt("vertices")
+                .hasArg(true)
+                .numberOfArgs(1)
+                .type(String.class)
+                .build();
+
+        OptionGroup source = new OptionGroup();
+        source.addOption(options.getOption(FILE_INPUT));
+        source.addOption(workload);
+        source.setRequired(true);
+        options.addOptionGroup(source);
+        options.addOption(vertices);
+    }
+
+    private static void setupOptions(Options options, boolean inputRequired) {
         Option input = Option.builder("i")
-                .required(true)
+                .required(inputRequired)
                 .argName(FILE_INPUT)
                 .desc("Shape file input")
                 .longOpt("input")
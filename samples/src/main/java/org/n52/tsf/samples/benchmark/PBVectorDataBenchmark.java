@@ -41,7 +41,8 @@ import java.util.List;
 
 /**
  * Benchmark test for Protobuf Serialization / Deserialization
- * To execute from command line use option -input to point to .shp file
+ * To execute from command line use option -input to point to .shp file, or -workload and -vertices to generate
+ * the geometries
  */
 
 public class PBVectorDataBenchmark {
@@ -49,16 +50,19 @@ public class PBVectorDataBenchmark {
     public static void main(String[] args) throws IOException {
         CommandLine line;
         Options options = new Options();
-        BenchMarkUtils.setupOptions(options);
+        BenchMarkUtils.setupWorkloadOptions(options);
         CommandLineParser parser = new DefaultParser();
         try {
             line = parser.parse(options, args);
-            File fileInput = new File(line.getOptionValue(BenchMarkUtils.FILE_INPUT));
             File fileOutput = null;
             if (line.hasOption(BenchMarkUtils.FILE_OUTPUT)) {
                 fileOutput = new File(line.getOptionValue(BenchMarkUtils.FILE_OUTPUT));
             }
-            pbSerializationForShpFilesCase1(fileInput);
+            if (line.hasOption(BenchMarkUtils.FILE_INPUT)) {
+                pbSerializationForShpFilesCase1(new File(line.getOptionValue(BenchMarkUtils.FILE_INPUT)));
+            } else {
+                pbSerializationForWorkload(BenchMarkUtils.getGeometryCollection(line), fileOutput);
+            }
         } catch (ParseException parseException) {
             System.out.println(
                     "ERROR: Unable to parse command-line arguments " + Arrays.toString(args) + " due to: "
@@ -69,13 +73,29 @@ public class PBVectorDataBenchmark {
     private static void pbSerializationForShpFilesCase1(File input) throws IOException {
 
         System.out.println("-------------- Serializing Shape files with Protobuf ------------------------");
-        long timeSpentSe = 0;
-        long timeSpentDe = 0;
         long sourceFileSize = FileUtils.sizeOf(input);
         String fileName = FilenameUtils.getBaseName(input.getName());
         String outputFile = input.getParent() + File.separator + fileName;
         Files.createFile(Paths.get(outputFile));
         GeometryCollection geoCollection = BenchMarkUtils.getGeometryCollection(input);
+        System.out.println("Source File size : " + (sourceFileSize / (1024 * 1024)) + " mb");
+        pbSerialization(geoCollection, outputFile);
+    }
+
+    private static void pbSerializationForWorkload(GeometryCollection geoCollection, File output) throws IOException {
+        System.out.println("-------------- Serializing / Deserializing a generated workload with Protobuf ------------------------");
+        File outputFile = output;
+        if (outputFile == null) {
+            outputFile = File.createTempFile("workload", ".pb");
+            outputFile.deleteOnExit();
+        }
+        System.out.println("Generated vertices : " + geoCollection.getNumPoints());
+        pbSerialization(geoCollection, outputFile.getPath());
+    }
+
+    private static void pbSerialization(GeometryCollection geoCollection, String outputFile) throws IOException {
+        long timeSpentSe = 0;
+        long timeSpentDe = 0;
         for (int i = 0; i < 50; i++) {
             SerializationHandler pbSerializer = SerializationFactory.createSerializer(new FileOutputStream(outputFile), SerializerType.PROTOBUF_SERIALIZER_VS);
             long startTime1 = System.nanoTime();
@@ -95,7 +115,6 @@ public class PBVectorDataBenchmark {
             pbDeserializationHandler.close();
         }
 
-        System.out.println("Source File size : " + (sourceFileSize / (1024 * 1024)) + " mb");
         System.out.println("Serialized File size : " + (serializedFileSize / (1024 * 1024)) + " mb");
         System.out.println("TimeSe : " + timeSpentSe / (50 * 1000 * 1000) + " ms");
         System.out.println("TimeDe : " + timeSpentDe / (50 * 1000 * 1000) + " ms");